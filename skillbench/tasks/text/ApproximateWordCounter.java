@@ -0,0 +1,286 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приближенный подсчет слов в неограниченном потоке текстов за фиксированный объем памяти.<br/>
+ * Тексты разбираются на слова по тем же правилам, что и в {@link WordCounterImpl}.
+ *  Количество вхождений любого слова оценивается скетчем Count-Min
+ *  (оценка не меньше точного значения и превышает его не более чем на <code>epsilon * N</code>
+ *  с вероятностью не меньше <code>1 - delta</code>, где N - число всех слов), а самые частые слова
+ *  отбираются алгоритмом Space-Saving, который следит не более чем за <code>capacity</code> словами:
+ *  любое слово, встречающееся чаще <code>N / capacity</code> раз, гарантированно попадает в этот список.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class ApproximateWordCounter {
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    /* Count-Min: depth строк по width счетчиков */
+    private final int width;
+    private final int depth;
+    private final long[] sketch;
+
+    /* Space-Saving: слова, за которыми следим, и куча по возрастанию их счетчиков */
+    private final String[] words;
+    private final int[] hashes;
+    private final long[] counts;
+    private final long[] errors;
+    private final int[] heap;
+    private final int[] heapIndex;
+    /** Хеш-таблица с открытой адресацией: номер слова + 1 или 0 */
+    private final int[] table;
+    private int size;
+
+    private long totalWords;
+
+    /**
+     * @param epsilon допустимая ошибка оценки количества как доля от числа всех слов, от 0 до 1
+     * @param delta вероятность превысить эту ошибку, от 0 до 1
+     * @param capacity за сколькими самыми частыми словами следить
+     * @throws IllegalArgumentException если параметры вне допустимых пределов
+     */
+    public ApproximateWordCounter(double epsilon, double delta, int capacity) {
+        if (!(epsilon > 0 && epsilon < 1)) throw new IllegalArgumentException("epsilon: " + epsilon);
+        if (!(delta > 0 && delta < 1)) throw new IllegalArgumentException("delta: " + delta);
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        double cells = Math.ceil(Math.E / epsilon) * Math.ceil(Math.log(1 / delta));
+        if (cells > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("sketch too large: " + cells);
+        width = (int) Math.ceil(Math.E / epsilon);
+        depth = Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+        sketch = new long[width * depth];
+        words = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        errors = new long[capacity];
+        heap = new int[capacity];
+        heapIndex = new int[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        table = new int[tableSize];
+    }
+
+    /**
+     * Учитывает слова очередного текста (каждый текст разбирается отдельно).
+     * @param text текст
+     */
+    public void add(CharSequence text) {
+        WordTokenizer tokenizer = new WordTokenizer(this::addWord);
+        tokenizer.feed(text, 0, text.length());
+        tokenizer.finish();
+    }
+
+    /**
+     * Учитывает слова текста, читаемого из <code>reader</code> до конца (поток не закрывается).
+     * @param reader источник текста
+     * @throws IOException при ошибке чтения
+     */
+    public void add(Reader reader) throws IOException {
+        WordTokenizer tokenizer = new WordTokenizer(this::addWord);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            tokenizer.feed(buffer, 0, n);
+        }
+        tokenizer.finish();
+    }
+
+    /**
+     * @return число всех учтенных слов (с повторами)
+     */
+    public long getTotalWords() {
+        return totalWords;
+    }
+
+    /**
+     * Оценивает количество вхождений слова; оценка никогда не меньше точного значения.
+     * @param word слово в нижнем регистре
+     * @return оценка количества вхождений
+     */
+    public long estimateCount(String word) {
+        int hash1 = word.hashCode();
+        int hash2 = secondHash(word);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, sketch[row * width + column(hash1, hash2, row)]);
+        }
+        int slot = find(word, hash1);
+        return slot < 0 ? estimate : Math.min(estimate, counts[slot]);
+    }
+
+    /**
+     * Возвращает отслеживаемые частые слова с оценками количества их вхождений (обе оценки - Space-Saving
+     *  и Count-Min - не меньше точного значения, берется меньшая), упорядоченные,
+     *  как в {@link WordCounter#getWordCountsSorted()}: по убыванию количества, затем по алфавиту.
+     * @return не более <code>capacity</code> самых частых слов
+     */
+    public List<Map.Entry<String, Long>> getWordCountsSorted() {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(words[slot], estimateCount(words[slot])));
+        }
+        result.sort((first, second) -> {
+            int compare = second.getValue().compareTo(first.getValue());
+            return compare != 0 ? compare : first.getKey().compareTo(second.getKey());
+        });
+        return result;
+    }
+
+    /**
+     * @return первые <code>k</code> элементов {@link #getWordCountsSorted()}
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     */
+    public List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        List<Map.Entry<String, Long>> sorted = getWordCountsSorted();
+        return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+    }
+
+    /**
+     * @return максимальная возможная переоценка количества слова, за которым следит Space-Saving,
+     *   или -1, если за словом не следят
+     */
+    public long getError(String word) {
+        int slot = find(word, word.hashCode());
+        return slot < 0 ? -1 : errors[slot];
+    }
+
+    private void addWord(char[] chars, int length, int hash) {
+        totalWords++;
+        int hash2 = secondHash(chars, length);
+        for (int row = 0; row < depth; row++) {
+            sketch[row * width + column(hash, hash2, row)]++;
+        }
+
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int slot = entry - 1;
+            if (hashes[slot] == hash && WordCountMap.equals(words[slot], chars, length)) {
+                counts[slot]++;
+                siftDown(heapIndex[slot]);
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        String word = new String(chars, 0, length);
+        if (size < words.length) {
+            int slot = size++;
+            words[slot] = word;
+            hashes[slot] = hash;
+            counts[slot] = 1;
+            errors[slot] = 0;
+            table[i] = slot + 1;
+            heap[slot] = slot;
+            heapIndex[slot] = slot;
+            siftUp(slot);
+        } else {
+            // вытесняем слово с наименьшим счетчиком: новое наследует его счетчик как возможную ошибку
+            int slot = heap[0];
+            remove(slot);
+            words[slot] = word;
+            hashes[slot] = hash;
+            errors[slot] = counts[slot];
+            counts[slot]++;
+            insert(slot);
+            siftDown(0);
+        }
+    }
+
+    private int column(int hash1, int hash2, int row) {
+        int h = hash1 + row * hash2;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % width;
+    }
+
+    private static int secondHash(char[] chars, int length) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            h = (h ^ chars[i]) * 0x01000193;
+        }
+        return h | 1;
+    }
+
+    private static int secondHash(String word) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < word.length(); i++) {
+            h = (h ^ word.charAt(i)) * 0x01000193;
+        }
+        return h | 1;
+    }
+
+    private int find(String word, int hash) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int slot = entry - 1;
+            if (hashes[slot] == hash && words[slot].equals(word)) return slot;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int slot) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hashes[slot]) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = slot + 1;
+    }
+
+    /**
+     * Удаляет слово из хеш-таблицы со сдвигом следующих элементов цепочки (без "надгробий").
+     */
+    private void remove(int slot) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hashes[slot]) & mask;
+        while (table[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (table[j] == 0) break;
+            int home = WordCountMap.spread(hashes[table[j] - 1]) & mask;
+            // элемент j можно перенести в i, если его "домашняя" ячейка не лежит в (i, j]
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                table[i] = table[j];
+                i = j;
+            }
+        }
+        table[i] = 0;
+    }
+
+    private void siftUp(int i) {
+        int slot = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= counts[slot]) break;
+            move(heap[parent], i);
+            i = parent;
+        }
+        move(slot, i);
+    }
+
+    private void siftDown(int i) {
+        int slot = heap[i];
+        int child;
+        while ((child = 2 * i + 1) < size) {
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) child++;
+            if (counts[slot] <= counts[heap[child]]) break;
+            move(heap[child], i);
+            i = child;
+        }
+        move(slot, i);
+    }
+
+    private void move(int slot, int i) {
+        heap[i] = slot;
+        heapIndex[slot] = i;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.skillbench.tasks.text;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Календарь дат рождения визитных карточек.<br/>
+ * Внутри дата рождения - день {@link LocalDate} (пролептический григорианский календарь), и это тот же день,
+ *  что и момент {@link Calendar} из {@link ContactCard#getBirthday()}. Поля этого {@link Calendar} и значение поля BDAY
+ *  записаны в календаре {@link GregorianCalendar}, как у прежней реализации на {@link java.text.SimpleDateFormat}:
+ *  до 15 октября 1582 года - юлианский (1500 год високосный), а 5-14 октября 1582 года не существуют.
+ *  Например, BDAY:29-02-1500 - это {@link LocalDate} 1500-03-10.<br/>
+ * Возраст и ближайшие дни рождения считаются по {@link LocalDate}.
+ */
+final class BirthdayCalendar {
+    /** Первый день григорианского календаря в {@link GregorianCalendar} */
+    static final LocalDate GREGORIAN_START = LocalDate.of(1582, 10, 15);
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private BirthdayCalendar() {
+    }
+
+    /**
+     * @param year год нашей эры
+     * @param month месяц от 1 до 12
+     * @param day день месяца
+     * @return день с такими полями в календаре {@link GregorianCalendar}
+     * @throws DateTimeException если такой даты нет
+     */
+    static LocalDate of(int year, int month, int day) {
+        if (year > GREGORIAN_START.getYear()) return LocalDate.of(year, month, day);
+        GregorianCalendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.setLenient(false);
+        calendar.set(year, month - 1, day);
+        long millis;
+        try {
+            millis = calendar.getTimeInMillis();
+        } catch (IllegalArgumentException e) {
+            throw new DateTimeException("Invalid date: " + day + "-" + month + "-" + year, e);
+        }
+        return LocalDate.ofEpochDay(Math.floorDiv(millis, MILLIS_PER_DAY));
+    }
+
+    /**
+     * @return год, месяц (от 1 до 12) и день месяца <code>date</code> в календаре {@link GregorianCalendar};
+     *  год до нашей эры - 0, -1, ..., как в {@link LocalDate#getYear()}
+     */
+    static int[] fields(LocalDate date) {
+        if (!date.isBefore(GREGORIAN_START)) {
+            return new int[] {date.getYear(), date.getMonthValue(), date.getDayOfMonth()};
+        }
+        GregorianCalendar calendar = new GregorianCalendar(UTC);
+        calendar.clear();
+        calendar.setTimeInMillis(Math.multiplyExact(date.toEpochDay(), MILLIS_PER_DAY));
+        int year = calendar.get(Calendar.YEAR);
+        if (calendar.get(Calendar.ERA) == GregorianCalendar.BC) year = 1 - year;
+        return new int[] {year, calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH)};
+    }
+
+    /**
+     * @return день момента <code>calendar</code> в его часовом поясе; поля и сам календарь не учитываются,
+     *  поэтому подходит {@link Calendar} любой реализации {@link ContactCard}
+     */
+    static LocalDate fromCalendar(Calendar calendar) {
+        long millis = calendar.getTimeInMillis();
+        long offset = calendar.get(Calendar.ZONE_OFFSET) + calendar.get(Calendar.DST_OFFSET);
+        return LocalDate.ofEpochDay(Math.floorDiv(millis + offset, MILLIS_PER_DAY));
+    }
+
+    /**
+     * @return {@link Calendar#getInstance()} на полночь дня <code>date</code>
+     */
+    static Calendar toCalendar(LocalDate date) {
+        int[] fields = fields(date);
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        if (fields[0] < 1) {
+            calendar.set(Calendar.ERA, GregorianCalendar.BC);
+            calendar.set(1 - fields[0], fields[1] - 1, fields[2]);
+        } else {
+            calendar.set(fields[0], fields[1] - 1, fields[2]);
+        }
+        return calendar;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.skillbench.tasks.text;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс дней рождения набора визитных карточек для ежедневных напоминаний и статистики возраста.<br/>
+ * Дата рождения каждой карточки один раз переводится в число дней от 1970-01-01 ({@link LocalDate#toEpochDay()}),
+ *  и карточки раскладываются по 366 ячейкам дня года (номер дня в високосном году, поэтому 29 февраля
+ *  - отдельная ячейка). В невисокосный год день рождения 29 февраля отмечается 28 февраля,
+ *  как и в {@link LocalDate#plusYears(long)}. Кроме того, даты рождения хранятся упорядоченными
+ *  для подсчета возрастов двоичным поиском.<br/>
+ * Возраст считается как {@link ContactCard#getAgeYears()}: полные годы {@link java.time.Period#between}.<br/>
+ * Карточки без даты рождения в индекс не попадают. Индекс не меняется после создания
+ *  и может использоваться из нескольких потоков.
+ */
+public class BirthdayIndex {
+    private static final int DAYS_IN_LEAP_YEAR = 366;
+    /** Ячейка 29 февраля */
+    private static final int FEBRUARY_29 = 31 + 28;
+
+    /** Карточки по ячейкам: ячейка s - с slotStart[s] по slotStart[s + 1] */
+    private final ContactCard[] cards;
+    private final int[] slotStart = new int[DAYS_IN_LEAP_YEAR + 1];
+    /** Даты рождения всех карточек по возрастанию */
+    private final long[] sortedDays;
+
+    /**
+     * Строит индекс по карточкам <code>cards</code> (в каждой ячейке карточки идут в порядке перебора).
+     */
+    public BirthdayIndex(Iterable<? extends ContactCard> cards) {
+        List<ContactCard> withBirthday = new ArrayList<>();
+        List<LocalDate> birthdays = new ArrayList<>();
+        for (ContactCard card : cards) {
+            LocalDate birthday = ContactCardImpl.birthday(card);
+            if (birthday != null) {
+                withBirthday.add(card);
+                birthdays.add(birthday);
+            }
+        }
+        int size = withBirthday.size();
+        int[] slots = new int[size];
+        sortedDays = new long[size];
+        for (int i = 0; i < size; i++) {
+            LocalDate birthday = birthdays.get(i);
+            slots[i] = slot(birthday);
+            slotStart[slots[i] + 1]++;
+            sortedDays[i] = birthday.toEpochDay();
+        }
+        Arrays.sort(sortedDays);
+        for (int slot = 0; slot < DAYS_IN_LEAP_YEAR; slot++) {
+            slotStart[slot + 1] += slotStart[slot];
+        }
+        this.cards = new ContactCard[size];
+        int[] next = Arrays.copyOf(slotStart, DAYS_IN_LEAP_YEAR);
+        for (int i = 0; i < size; i++) {
+            this.cards[next[slots[i]]++] = withBirthday.get(i);
+        }
+    }
+
+    /**
+     * @return номер дня года (от 0) так, как если бы год <code>date</code> был високосным
+     */
+    private static int slot(LocalDate date) {
+        int slot = date.getDayOfYear() - 1;
+        return !date.isLeapYear() && slot >= FEBRUARY_29 ? slot + 1 : slot;
+    }
+
+    /**
+     * @return число карточек с датой рождения
+     */
+    public int size() {
+        return cards.length;
+    }
+
+    /**
+     * То же, что {@link #getUpcoming(LocalDate, int)} начиная с сегодняшней даты.
+     */
+    public List<Map.Entry<LocalDate, ContactCard>> getUpcoming(int days) {
+        return getUpcoming(LocalDate.now(), days);
+    }
+
+    /**
+     * Возвращает дни рождения в ближайшие <code>days</code> дней начиная с <code>from</code> включительно
+     *  за время, пропорциональное числу дней и размеру результата. Просмотр заканчивается раньше, на дате,
+     *  день года которой уже пройден (не позже чем через 366 дней), так что каждая карточка встречается
+     *  не больше одного раза: например, начиная с 29 февраля високосного года в результат попадает
+     *  и 28 февраля следующего года, но не повторно дни рождения 29 февраля.
+     * @return пары (дата дня рождения, карточка) по возрастанию даты
+     * @throws IllegalArgumentException если <code>days</code> отрицательно
+     */
+    public List<Map.Entry<LocalDate, ContactCard>> getUpcoming(LocalDate from, int days) {
+        if (days < 0) throw new IllegalArgumentException("days < 0: " + days);
+        List<Map.Entry<LocalDate, ContactCard>> result = new ArrayList<>();
+        boolean[] visited = new boolean[DAYS_IN_LEAP_YEAR];
+        LocalDate date = from;
+        for (int i = 0; i < days; i++, date = date.plusDays(1)) {
+            int slot = slot(date);
+            if (visited[slot]) break;
+            visited[slot] = true;
+            add(result, date, slot);
+            if (slot == FEBRUARY_29 - 1 && !date.isLeapYear() && !visited[FEBRUARY_29]) {
+                visited[FEBRUARY_29] = true;
+                add(result, date, FEBRUARY_29);
+            }
+        }
+        return result;
+    }
+
+    private void add(List<Map.Entry<LocalDate, ContactCard>> result, LocalDate date, int slot) {
+        for (int i = slotStart[slot]; i < slotStart[slot + 1]; i++) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(date, cards[i]));
+        }
+    }
+
+    /**
+     * Распределение карточек по возрасту на дату <code>date</code>: для каждого возраста в полных годах
+     *  граница дат рождения находится двоичным поиском, поэтому время пропорционально наибольшему возрасту,
+     *  а не числу карточек. Карточки, родившиеся позже <code>date</code>, не учитываются.
+     * @return массив, в котором элемент с индексом <code>age</code> - число карточек этого возраста;
+     *   его длина - наибольший возраст + 1 (пустой массив, если учитывать нечего)
+     */
+    public int[] getAgeHistogram(LocalDate date) {
+        int born = upperBound(date.toEpochDay());
+        if (born == 0) return new int[0];
+        int[] histogram = new int[(int) ChronoUnit.YEARS.between(LocalDate.ofEpochDay(sortedDays[0]), date) + 1];
+        // возраст age - дата рождения после date - (age + 1) лет и не позже date - age лет
+        int to = born;
+        for (int age = 0; age < histogram.length; age++) {
+            int from = upperBound(date.minusYears(age + 1L).toEpochDay());
+            histogram[age] = to - from;
+            to = from;
+        }
+        return histogram;
+    }
+
+    /**
+     * @return число дат рождения не позже <code>day</code>
+     */
+    private int upperBound(long day) {
+        int low = 0;
+        int high = sortedDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedDays[middle] <= day) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+}
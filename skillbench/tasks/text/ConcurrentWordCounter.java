@@ -0,0 +1,321 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Потокобезопасный накопительный подсчет слов в документах, поступающих из многих потоков
+ *  (в том числе виртуальных).<br/>
+ * Каждый документ разбирается на слова по правилам {@link WordCounterImpl} в собственный {@link WordCountMap}
+ *  без блокировок, а затем его счетчики прибавляются к общим счетчикам {@link LongAdder}.
+ *  Документы прибавляются под разделяемой блокировкой чтения и не мешают друг другу,
+ *  а снимок для чтения результатов строится под исключительной блокировкой,
+ *  поэтому каждый документ входит в снимок либо целиком, либо никак.<br/>
+ * Методы чтения повторяют {@link WordCounter}: снимок запоминается до прибавления следующего документа,
+ *  возвращаемые {@link Map} и списки неизменяемы.<br/>
+ * Методы {@link WordCounter} ведут общий текст, как {@link WordCounterImpl}: {@link #setText(String)}
+ *  и {@link #setInput(Reader)} заменяют все накопленные счетчики счетчиками нового текста,
+ *  а {@link #appendText(CharSequence)} продолжает этот текст (слово или тег, разорванные между частями,
+ *  учитываются так же, как в цельном тексте) и прибавляет слова продолжения к текущим счетчикам,
+ *  в том числе после <code>add</code> и {@link #setInput(Reader)}. Документы <code>add</code> от этого текста
+ *  не зависят. {@link #getText()} возвращает текст, только пока счетчики соответствуют ему,
+ *  и <code>null</code> после <code>add</code> или {@link #setInput(Reader)}. В отличие от {@link WordCounter},
+ *  методы чтения не выбрасывают {@link IllegalStateException}, если текст не задан:
+ *  счетчики без документов просто пусты.
+ */
+public class ConcurrentWordCounter implements WordCounter {
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** Получатель для хранимого разборщика общего текста, чтобы он не удерживал словарь последней части */
+    private static final WordTokenizer.Sink DETACHED = (chars, length, hash) -> { };
+
+    private final ConcurrentHashMap<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final LongAdder documents = new LongAdder();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Снимок счетчиков или null, если после его построения прибавлялись документы */
+    private volatile Snapshot snapshot;
+    /** Текст, которому соответствуют счетчики, или null; изменяется под исключительной блокировкой */
+    private String text;
+    /** Текст, продолженный {@link #appendText(CharSequence)}, пока его не запросили в {@link #getText()} */
+    private StringBuilder appended;
+    /** Разборщик общего текста с незавершенным последним словом или тегом или null, если текста нет */
+    private WordTokenizer tail;
+
+    /**
+     * Прибавляет к общим счетчикам слова документа. Можно вызывать одновременно из многих потоков.
+     * @param document текст документа
+     */
+    public void add(CharSequence document) {
+        Objects.requireNonNull(document);
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        tokenizer.feed(document, 0, document.length());
+        tokenizer.finish();
+        merge(words);
+    }
+
+    /**
+     * Прибавляет к общим счетчикам слова документа, читаемого из <code>reader</code> до конца
+     *  (поток не закрывается). Пока документ читается, общие счетчики не блокируются.
+     * @param reader источник текста документа
+     * @throws IOException при ошибке чтения (тогда слова документа не учитываются)
+     */
+    public void add(Reader reader) throws IOException {
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = read(reader, words);
+        tokenizer.finish();
+        merge(words);
+    }
+
+    /**
+     * Заменяет все счетчики счетчиками текста <code>text</code> как единственного документа;
+     *  при <code>text</code> = <code>null</code> сбрасывает их, как {@link #clear()}.
+     *  Пока текст разбирается, счетчики не блокируются.
+     */
+    @Override
+    public void setText(String text) {
+        if (text == null) {
+            clear();
+            return;
+        }
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        tokenizer.feed(text, 0, text.length());
+        replace(words, tokenizer, text);
+    }
+
+    /**
+     * Заменяет все счетчики счетчиками текста, читаемого из <code>reader</code> до конца (поток не закрывается).
+     *  Слова считаются по мере чтения, текст не сохраняется, поэтому {@link #getText()} затем возвращает
+     *  <code>null</code>, а {@link #appendText(CharSequence)} продолжает прочитанный текст.
+     *  Пока текст читается, счетчики не блокируются.
+     * @throws IOException при ошибке чтения (тогда счетчики не изменяются)
+     */
+    @Override
+    public void setInput(Reader reader) throws IOException {
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = read(reader, words);
+        replace(words, tokenizer, null);
+    }
+
+    /**
+     * Продолжает общий текст (если его нет - начинает новый) и прибавляет слова <code>piece</code>
+     *  к текущим счетчикам, не сбрасывая их. Слово или тег, начатые в конце прежнего текста,
+     *  учитываются так же, как в цельном тексте. Часть разбирается под исключительной блокировкой,
+     *  поэтому одновременные <code>add</code> не теряются, а продолжения применяются по очереди.
+     * @param piece продолжение текста
+     */
+    @Override
+    public void appendText(CharSequence piece) {
+        Objects.requireNonNull(piece);
+        lock.writeLock().lock();
+        try {
+            WordCountMap words = new WordCountMap();
+            WordTokenizer tokenizer;
+            if (tail == null) {
+                if (documents.sum() == 0) appended = new StringBuilder();
+                tokenizer = new WordTokenizer(words::add);
+                documents.increment();
+            } else {
+                tokenizer = tail.copy(words::add);
+            }
+            tokenizer.feed(piece, 0, piece.length());
+            tail = tokenizer.copy(DETACHED);
+            if (text != null) {
+                appended = new StringBuilder(text);
+                text = null;
+            }
+            if (appended != null) appended.append(piece);
+            addWords(words);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return текст, заданный {@link #setText(String)} и продолженный {@link #appendText(CharSequence)},
+     *  если с тех пор не прибавлялись документы, иначе <code>null</code>
+     */
+    @Override
+    public String getText() {
+        lock.writeLock().lock();
+        try {
+            if (text == null && appended != null) {
+                text = appended.toString();
+                appended = null;
+            }
+            return text;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Разбирает <code>reader</code> до конца, не завершая последнее слово.
+     */
+    private static WordTokenizer read(Reader reader, WordCountMap words) throws IOException {
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            tokenizer.feed(buffer, 0, n);
+        }
+        return tokenizer;
+    }
+
+    private void merge(WordCountMap words) {
+        lock.readLock().lock();
+        try {
+            // все одновременные документы записывают одно и то же
+            text = null;
+            appended = null;
+            addWords(words);
+            documents.increment();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Под исключительной блокировкой заменяет счетчики счетчиками <code>words</code> как единственного документа
+     *  (или сбрасывает, если <code>words</code> = <code>null</code>) и начинает общий текст.
+     */
+    private void replace(WordCountMap words, WordTokenizer tokenizer, String text) {
+        lock.writeLock().lock();
+        try {
+            counts.clear();
+            documents.reset();
+            if (words != null) {
+                addWords(words);
+                documents.increment();
+            }
+            this.text = text;
+            appended = null;
+            tail = tokenizer == null ? null : tokenizer.copy(DETACHED);
+            snapshot = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addWords(WordCountMap words) {
+        words.forEach((word, count) -> {
+            LongAdder adder = counts.get(word);
+            if (adder == null) {
+                adder = counts.computeIfAbsent(word, key -> new LongAdder());
+            }
+            adder.add(count);
+        });
+        snapshot = null;
+    }
+
+    /**
+     * Сбрасывает все счетчики и общий текст.
+     */
+    public void clear() {
+        replace(null, null, null);
+    }
+
+    /**
+     * @return число документов, учтенных в {@link #getWordCounts()}
+     */
+    public long getDocumentCount() {
+        return snapshot().documents;
+    }
+
+    /**
+     * Как {@link WordCounter#getWordCounts()}, но для всех учтенных документов;
+     *  если документов еще не было, возвращается пустая {@link Map}.
+     * @return неизменяемый согласованный снимок счетчиков
+     */
+    @Override
+    public Map<String, Long> getWordCounts() {
+        return snapshot().map;
+    }
+
+    /**
+     * Как {@link WordCounter#getWordCountsSorted()}, но для всех учтенных документов.
+     * @return неизменяемый список, упорядоченный по убыванию количества, затем по алфавиту
+     */
+    @Override
+    public List<Map.Entry<String, Long>> getWordCountsSorted() {
+        Snapshot current = snapshot();
+        List<Map.Entry<String, Long>> sorted = current.sorted;
+        if (sorted == null) {
+            current.sorted = sorted = Collections.unmodifiableList(current.words.sorted());
+        }
+        return sorted;
+    }
+
+    /**
+     * Как {@link WordCounter#getTopWords(int)}, но для всех учтенных документов.
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     */
+    @Override
+    public List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        Snapshot current = snapshot();
+        List<Map.Entry<String, Long>> sorted = current.sorted;
+        if (sorted != null) {
+            return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+        }
+        return current.words.entries(current.words.top(k, 0, current.words.capacity()));
+    }
+
+    @Override
+    public <K extends Comparable<K>, V extends Comparable<V>> List<Map.Entry<K, V>> sort(Map<K, V> map, Comparator<Map.Entry<K, V>> comparator) {
+        ArrayList<Map.Entry<K, V>> mapAsList = new ArrayList<>(map.entrySet());
+        mapAsList.sort(comparator);
+        return mapAsList;
+    }
+
+    @Override
+    public <K, V> void print(List<Map.Entry<K, V>> entryList, PrintStream ps) {
+        WordCountPrinter.print(entryList, ps);
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+        lock.writeLock().lock();
+        try {
+            current = snapshot;
+            if (current == null) {
+                WordCountMap words = new WordCountMap(counts.size());
+                counts.forEach((word, adder) -> words.add(word, adder.sum()));
+                // последнее слово общего текста еще не завершено: учитываем его в копии разборщика
+                if (tail != null) tail.copy(words::add).finish();
+                snapshot = current = new Snapshot(words, documents.sum());
+            }
+            return current;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Неизменяемый снимок счетчиков; упорядоченный список строится при первом запросе.
+     */
+    private static final class Snapshot {
+        final WordCountMap words;
+        final Map<String, Long> map;
+        final long documents;
+        volatile List<Map.Entry<String, Long>> sorted;
+
+        Snapshot(WordCountMap words, long documents) {
+            this.words = words;
+            this.map = words.asMap();
+            this.documents = documents;
+        }
+    }
+}
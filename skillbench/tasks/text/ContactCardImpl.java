@@ -1,7 +1,6 @@
 package ru.skillbench.tasks.text;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.time.Period;
 import java.util.*;
 
@@ -9,58 +8,48 @@ public class ContactCardImpl implements ContactCard {
     private String fullName;
     private String department;
     private boolean isWoman;
-    private Calendar birthday;
+    private LocalDate birthday;
+    /** {@link #birthday} в виде {@link Calendar}, создается при первом вызове {@link #getBirthday()} */
+    private Calendar birthdayCalendar;
     private HashMap<String, String> phone = new HashMap<>();
+    /** Номера из {@link #phone} в виде {@link PhoneNumbers#format(long)}, создаются при первом вызове {@link #getPhone(String)} */
+    private HashMap<String, String> formattedPhone;
 
+    public ContactCardImpl() {
+    }
+
+    ContactCardImpl(String fullName, String department, boolean isWoman, LocalDate birthday,
+                    HashMap<String, String> phone) {
+        this.fullName = fullName;
+        this.department = department;
+        this.isWoman = isWoman;
+        this.birthday = birthday;
+        this.phone = phone;
+    }
+
+    /**
+     * Строки читаются из <code>scanner</code> и разбираются {@link VCardParser}
+     *  (имя поля сравнивается целиком, а не поиском подстроки; дата рождения разбирается так же нестрого,
+     *  как прежде, см. {@link VCardParser#parseBirthday(CharSequence, int, int)}).
+     */
     @Override
     public ContactCard getInstance(Scanner scanner) {
-        ContactCardImpl contactCard = new ContactCardImpl();
+        VCardParser parser = new VCardParser();
         String s = scanner.nextLine();
-        if (!s.equals("BEGIN:VCARD"))
-            throw new NoSuchElementException();
+        parser.line(s, 0, s.length());
         while (scanner.hasNextLine()) {
             s = scanner.nextLine();
-            if (!s.contains(":"))
-                throw new InputMismatchException();
-            if (s.contains("FN")) {
-                contactCard.fullName = s.substring(3);
-            } else if (s.contains("ORG")) {
-                contactCard.department = s.substring(4);
-            } else if (s.contains("GENDER")) {
-                if (s.substring(7).equals("M"))
-                    contactCard.isWoman = false;
-                else if (s.substring(7).equals("F"))
-                    contactCard.isWoman = true;
-                else throw new NoSuchElementException();
-            } else if (s.contains("BDAY")) {
-                try {
-                    contactCard.birthday = Calendar.getInstance();
-                    SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd-MM-yyyy");
-                    simpleDateFormat.setLenient(false);
-                    contactCard.birthday.setTime(simpleDateFormat.parse(s.substring(5)));
-                } catch (ParseException e) {
-                    InputMismatchException mismatchException = new InputMismatchException();
-                    mismatchException.initCause(e);
-                    throw mismatchException;
-                }
-            }
-
-                if (s.contains("TEL")) {
-                    String number = s.substring(s.indexOf(":") + 1);
-                    if (!number.matches("\\d{10}")) {
-                        throw new InputMismatchException();
-                    }
-                    contactCard.phone.put(s.substring(s.indexOf("=") + 1, s.indexOf(":")), number);
-                }
-                }
-        if (!s.equals("END:VCARD") || contactCard.fullName == null || contactCard.department == null) {
-            throw new NoSuchElementException();
+            parser.line(s, 0, s.length());
         }
-        return contactCard;
+        return parser.finish();
     }
+
+    /**
+     * Разбирает <code>data</code> напрямую, без {@link Scanner}, с тем же результатом и теми же исключениями.
+     */
     @Override
     public ContactCard getInstance(String data) {
-        return getInstance(new Scanner(data));
+        return VCardParser.parse(data);
     }
 
     @Override
@@ -83,7 +72,10 @@ public class ContactCardImpl implements ContactCard {
         if(birthday == null) {
             throw new NoSuchElementException();
         }
-        return birthday;
+        if (birthdayCalendar == null) {
+            birthdayCalendar = BirthdayCalendar.toCalendar(birthday);
+        }
+        return birthdayCalendar;
     }
 
     @Override
@@ -91,11 +83,7 @@ public class ContactCardImpl implements ContactCard {
         if(birthday == null) {
             throw new NoSuchElementException();
         }
-        Calendar result = Calendar.getInstance();
-        result.add(Calendar.DAY_OF_MONTH, -birthday.get(Calendar.DAY_OF_MONTH));
-        result.add(Calendar.MONTH, -birthday.get(Calendar.MONTH));
-        result.add(Calendar.YEAR, -birthday.get(Calendar.YEAR));
-        return Period.of(result.get(Calendar.YEAR), result.get(Calendar.MONTH), result.get(Calendar.DAY_OF_MONTH));
+        return Period.between(birthday, LocalDate.now());
     }
 
     @Override
@@ -108,14 +96,52 @@ public class ContactCardImpl implements ContactCard {
 
     @Override
     public String getPhone(String type) {
-        if(!phone.containsKey(type)) {
+        if (formattedPhone == null) {
+            HashMap<String, String> formatted = new HashMap<>(phone.size() * 4 / 3 + 1);
+            for (Map.Entry<String, String> entry : phone.entrySet()) {
+                formatted.put(entry.getKey(), PhoneNumbers.format(PhoneNumbers.parse(entry.getValue())));
+            }
+            formattedPhone = formatted;
+        }
+        String formatted = formattedPhone.get(type);
+        if(formatted == null) {
             throw new NoSuchElementException();
         }
-        StringBuilder stringBuilder = new StringBuilder(phone.get(type));
-        stringBuilder.insert(0, "(");
-        stringBuilder.insert(4, ")");
-        stringBuilder.insert(5, " ");
-        stringBuilder.insert(9, "-");
-        return stringBuilder.toString();
+        return formatted;
+    }
+
+    /**
+     * @return дата рождения или null, если поля BDAY нет
+     */
+    LocalDate birthday() {
+        return birthday;
+    }
+
+    /**
+     * @return дата рождения любой карточки (день момента ее {@link ContactCard#getBirthday()},
+     *   см. {@link BirthdayCalendar}) или null, если {@link ContactCard#getBirthday()}
+     *   выбрасывает {@link NoSuchElementException}
+     */
+    static LocalDate birthday(ContactCard card) {
+        if (card instanceof ContactCardImpl) return ((ContactCardImpl) card).birthday;
+        Calendar calendar;
+        try {
+            calendar = card.getBirthday();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+        return BirthdayCalendar.fromCalendar(calendar);
+    }
+
+    /**
+     * Телефоны любой карточки: типы телефонов нельзя перечислить через {@link ContactCard},
+     *  поэтому они известны только карточкам {@link ContactCardImpl} и представлениям {@link ContactCardStore}.
+     * @return номера телефонов в виде, который принимает {@link PhoneNumbers#parse(CharSequence)}, по типам
+     *   (пустой словарь для карточек других реализаций); не изменять
+     */
+    static Map<String, String> phones(ContactCard card) {
+        if (card instanceof ContactCardImpl) return ((ContactCardImpl) card).phone;
+        if (card instanceof ContactCardStore.Card) return ((ContactCardStore.Card) card).phones();
+        return Collections.emptyMap();
     }
-}
\ No newline at end of file
+}
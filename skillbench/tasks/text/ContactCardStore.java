@@ -0,0 +1,350 @@
+package ru.skillbench.tasks.text;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Scanner;
+
+/**
+ * Хранилище визитных карточек по столбцам: вместо объекта на карточку - по массиву на каждое поле.<br/>
+ * Названия организаций и типы телефонов хранятся однократно в {@link WordDictionary}, а в карточке - их номера;
+ *  дата рождения - число дней от 1970-01-01 ({@link LocalDate#toEpochDay()}), пол - бит в {@link BitSet},
+ *  телефоны - 10 цифр в одном long, а телефоны всех карточек лежат подряд в общих массивах
+ *  (телефоны карточки i - с {@code phoneOffsets[i]} по {@code phoneOffsets[i + 1]}).<br/>
+ * Для запросов поддерживаются списки карточек каждой организации (обновляются при добавлении)
+ *  и упорядоченный по дате рождения индекс (перестраивается при первом запросе после добавления карточек).
+ *  Запросы возвращают неизменяемые списки легковесных представлений {@link ContactCard}, которые создаются
+ *  при обращении к элементу списка.<br/>
+ * Карточки только добавляются; номер карточки - порядковый номер ее добавления, начиная с 0.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class ContactCardStore {
+    private static final int NO_BIRTHDAY = Integer.MIN_VALUE;
+
+    private final WordDictionary organizationNames = new WordDictionary();
+    private final WordDictionary phoneTypeNames = new WordDictionary();
+
+    private String[] fullNames = new String[64];
+    private int[] organizations = new int[64];
+    /** {@link LocalDate#toEpochDay()} или {@link #NO_BIRTHDAY} */
+    private int[] birthdays = new int[64];
+    private final BitSet women = new BitSet();
+    private int size;
+
+    private int[] phoneOffsets = new int[65];
+    private int[] phoneTypes = new int[64];
+    private long[] phoneNumbers = new long[64];
+
+    /** Номера карточек каждой организации по возрастанию: первые organizationSizes[org] элементов */
+    private int[][] organizationCards = new int[16][];
+    private int[] organizationSizes = new int[16];
+
+    /** Пары (дата рождения << 32 | номер карточки) по возрастанию для карточек с датой рождения */
+    private long[] birthdayIndex = new long[0];
+    /** Число карточек, учтенных в {@link #birthdayIndex} */
+    private int birthdayIndexed;
+
+    /**
+     * Добавляет копию карточки. Телефоны копируются только у карточек {@link ContactCardImpl} и представлений
+     *  этого класса: у других реализаций {@link ContactCard} их типы нельзя перечислить.
+     * @return номер добавленной карточки
+     * @throws NullPointerException если у карточки нет имени или организации
+     * @throws IllegalArgumentException если дата рождения вне пределов int дней от 1970-01-01
+     *   или номер телефона не из 10 цифр
+     */
+    public int add(ContactCard card) {
+        String fullName = Objects.requireNonNull(card.getFullName(), "fullName");
+        String organization = Objects.requireNonNull(card.getOrganization(), "organization");
+        LocalDate birthday = ContactCardImpl.birthday(card);
+        Map<String, String> phones = ContactCardImpl.phones(card);
+
+        if (size == fullNames.length) {
+            fullNames = Arrays.copyOf(fullNames, size * 2);
+            organizations = Arrays.copyOf(organizations, size * 2);
+            birthdays = Arrays.copyOf(birthdays, size * 2);
+            phoneOffsets = Arrays.copyOf(phoneOffsets, size * 2 + 1);
+        }
+        int phoneStart = phoneOffsets[size];
+        int phoneEnd = phoneStart + phones.size();
+        if (phoneEnd > phoneNumbers.length) {
+            int capacity = Math.max(phoneEnd, phoneNumbers.length * 2);
+            phoneTypes = Arrays.copyOf(phoneTypes, capacity);
+            phoneNumbers = Arrays.copyOf(phoneNumbers, capacity);
+        }
+        int phone = phoneStart;
+        for (Map.Entry<String, String> entry : phones.entrySet()) {
+            phoneNumbers[phone] = PhoneNumbers.parse(entry.getValue());
+            phoneTypes[phone] = phoneTypeNames.add(entry.getKey());
+            phone++;
+        }
+        int birthdayDay = NO_BIRTHDAY;
+        if (birthday != null) {
+            long day = birthday.toEpochDay();
+            if (day <= NO_BIRTHDAY || day > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("birthday: " + birthday);
+            }
+            birthdayDay = (int) day;
+        }
+
+        int id = size++;
+        fullNames[id] = fullName;
+        int org = organizationNames.add(organization);
+        organizations[id] = org;
+        birthdays[id] = birthdayDay;
+        women.set(id, card.isWoman());
+        phoneOffsets[id + 1] = phoneEnd;
+        addToOrganization(org, id);
+        return id;
+    }
+
+    private void addToOrganization(int org, int id) {
+        if (org == organizationCards.length) {
+            organizationCards = Arrays.copyOf(organizationCards, org * 2);
+            organizationSizes = Arrays.copyOf(organizationSizes, org * 2);
+        }
+        int[] cards = organizationCards[org];
+        int count = organizationSizes[org];
+        if (cards == null) {
+            organizationCards[org] = cards = new int[4];
+        } else if (count == cards.length) {
+            organizationCards[org] = cards = Arrays.copyOf(cards, count * 2);
+        }
+        cards[count] = id;
+        organizationSizes[org] = count + 1;
+    }
+
+    /**
+     * @return число карточек
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return представление карточки с номером <code>id</code>
+     * @throws IndexOutOfBoundsException если карточки с таким номером нет
+     */
+    public ContactCard get(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("id: " + id + ", size: " + size);
+        return new Card(id);
+    }
+
+    /**
+     * @return карточки организации в порядке добавления (пустой список, если таких нет); список не меняется
+     *   при добавлении карточек после вызова
+     */
+    public List<ContactCard> getByOrganization(String organization) {
+        int org = organizationNames.idOf(organization);
+        if (org < 0) return Collections.emptyList();
+        return new CardList(organizationCards[org], 0, organizationSizes[org]);
+    }
+
+    /**
+     * @return число карточек каждой организации
+     */
+    public Map<String, Integer> countByOrganization() {
+        int count = organizationNames.size();
+        Map<String, Integer> map = new HashMap<>(count * 4 / 3 + 1);
+        for (int org = 0; org < count; org++) {
+            map.put(organizationNames.word(org), organizationSizes[org]);
+        }
+        return map;
+    }
+
+    /**
+     * То же, что {@link #getByAge(int, int, LocalDate)} на сегодняшнюю дату.
+     */
+    public List<ContactCard> getByAge(int minYears, int maxYears) {
+        return getByAge(minYears, maxYears, LocalDate.now());
+    }
+
+    /**
+     * Возвращает карточки, возраст которых на дату <code>today</code> в полных годах
+     *  ({@link ContactCard#getAgeYears()}) - от <code>minYears</code> до <code>maxYears</code> включительно,
+     *  в порядке даты рождения (от старших к младшим), - двоичным поиском по индексу дат рождения.
+     *  Карточки без даты рождения не попадают в результат.
+     * @throws IllegalArgumentException если <code>minYears</code> больше <code>maxYears</code>
+     */
+    public List<ContactCard> getByAge(int minYears, int maxYears, LocalDate today) {
+        if (minYears > maxYears) throw new IllegalArgumentException("minYears > maxYears: " + minYears + " > " + maxYears);
+        // возраст не меньше minYears - родился не позже today - minYears,
+        // возраст не больше maxYears - родился позже today - (maxYears + 1)
+        long last = today.minusYears(minYears).toEpochDay();
+        long first = today.minusYears(maxYears + 1L).toEpochDay() + 1;
+        return getByBirthday(first, last);
+    }
+
+    /**
+     * @return карточки с датой рождения от <code>from</code> до <code>to</code> включительно
+     *   в порядке даты рождения
+     */
+    public List<ContactCard> getByBirthday(LocalDate from, LocalDate to) {
+        return getByBirthday(from.toEpochDay(), to.toEpochDay());
+    }
+
+    private List<ContactCard> getByBirthday(long fromDay, long toDay) {
+        long[] index = birthdayIndex();
+        if (fromDay > toDay || fromDay > Integer.MAX_VALUE || toDay <= NO_BIRTHDAY) return Collections.emptyList();
+        int from = lowerBound(index, Math.max(fromDay, NO_BIRTHDAY + 1L) << 32);
+        int to = toDay >= Integer.MAX_VALUE ? index.length : lowerBound(index, (toDay + 1) << 32);
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = (int) index[i];
+        }
+        return new CardList(ids, 0, ids.length);
+    }
+
+    /**
+     * @return первая позиция в <code>index</code> со значением не меньше <code>key</code>
+     */
+    private static int lowerBound(long[] index, long key) {
+        int low = 0;
+        int high = index.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (index[middle] < key) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    private long[] birthdayIndex() {
+        if (birthdayIndexed == size) return birthdayIndex;
+        long[] added = new long[size - birthdayIndexed];
+        int count = 0;
+        for (int id = birthdayIndexed; id < size; id++) {
+            if (birthdays[id] != NO_BIRTHDAY) added[count++] = (long) birthdays[id] << 32 | id;
+        }
+        Arrays.sort(added, 0, count);
+        // слияние с уже упорядоченной частью
+        long[] old = birthdayIndex;
+        long[] index = new long[old.length + count];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < old.length && j < count) {
+            index[k++] = old[i] <= added[j] ? old[i++] : added[j++];
+        }
+        while (i < old.length) index[k++] = old[i++];
+        while (j < count) index[k++] = added[j++];
+        birthdayIndex = index;
+        birthdayIndexed = size;
+        return index;
+    }
+
+    /**
+     * Неизменяемый список представлений карточек с номерами ids[from..to).
+     */
+    private final class CardList extends AbstractList<ContactCard> implements RandomAccess {
+        private final int[] ids;
+        private final int from;
+        private final int size;
+
+        CardList(int[] ids, int from, int to) {
+            this.ids = ids;
+            this.from = from;
+            this.size = to - from;
+        }
+
+        @Override
+        public ContactCard get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+            return new Card(ids[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Представление карточки с номером id: значения полей читаются из столбцов хранилища при каждом вызове.
+     */
+    final class Card implements ContactCard {
+        private final int id;
+
+        Card(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public ContactCard getInstance(Scanner scanner) {
+            return new ContactCardImpl().getInstance(scanner);
+        }
+
+        @Override
+        public ContactCard getInstance(String data) {
+            return new ContactCardImpl().getInstance(data);
+        }
+
+        @Override
+        public String getFullName() {
+            return fullNames[id];
+        }
+
+        @Override
+        public String getOrganization() {
+            return organizationNames.word(organizations[id]);
+        }
+
+        @Override
+        public boolean isWoman() {
+            return women.get(id);
+        }
+
+        @Override
+        public Calendar getBirthday() {
+            return BirthdayCalendar.toCalendar(birthday());
+        }
+
+        @Override
+        public Period getAge() {
+            return Period.between(birthday(), LocalDate.now());
+        }
+
+        @Override
+        public int getAgeYears() {
+            return getAge().getYears();
+        }
+
+        private LocalDate birthday() {
+            int day = birthdays[id];
+            if (day == NO_BIRTHDAY) throw new NoSuchElementException();
+            return LocalDate.ofEpochDay(day);
+        }
+
+        @Override
+        public String getPhone(String type) {
+            int typeId = phoneTypeNames.idOf(type);
+            if (typeId >= 0) {
+                for (int phone = phoneOffsets[id]; phone < phoneOffsets[id + 1]; phone++) {
+                    if (phoneTypes[phone] == typeId) return PhoneNumbers.format(phoneNumbers[phone]);
+                }
+            }
+            throw new NoSuchElementException();
+        }
+
+        /**
+         * @return номера телефонов в виде {@link PhoneNumbers#format(long)} по типам в порядке добавления
+         */
+        Map<String, String> phones() {
+            Map<String, String> phones = new LinkedHashMap<>();
+            for (int phone = phoneOffsets[id]; phone < phoneOffsets[id + 1]; phone++) {
+                phones.put(phoneTypeNames.word(phoneTypes[phone]), PhoneNumbers.format(phoneNumbers[phone]));
+            }
+            return phones;
+        }
+    }
+}
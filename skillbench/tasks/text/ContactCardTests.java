@@ -1,10 +1,31 @@
 package ru.skillbench.tasks.text;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -98,4 +119,249 @@ public class ContactCardTests {
 		getCard(BAD[1]);
 	}
 	
+	@Test
+	public void getBirthdayLenientFormat(){
+		//same dates as the former SimpleDateFormat("dd-MM-yyyy") with setLenient(false)
+		String[][] dates = {{"1-4-1940", "1940-4-1"}, {"01-04-1940 ", "1940-4-1"}, {"01-04-40", "40-4-1"},
+				{" 01-\t04-1940xyz", "1940-4-1"}, {"001-004-01940", "1940-4-1"},
+				//Julian calendar before 15-10-1582, as in GregorianCalendar
+				{"29-02-1500", "1500-2-29"}, {"29-02-1300", "1300-2-29"}, {"04-10-1582", "1582-10-4"}};
+		for (String[] date : dates) {
+			Calendar bday = getCard("FN:A\r\nORG:B\r\nBDAY:"+date[0]).getBirthday();
+			assertEquals("getBirthday() failed with BDAY:"+date[0], date[1], 
+					bday.get(Calendar.YEAR)+"-"+(bday.get(Calendar.MONTH)+1)+"-"+bday.get(Calendar.DAY_OF_MONTH));
+		}
+	}
+	
+	@Test
+	public void birthdaysAcrossGregorianReform() throws IOException{
+		//the last Julian day and the first Gregorian day are consecutive
+		Calendar julian = getCard("FN:A\r\nORG:B\r\nBDAY:04-10-1582").getBirthday();
+		Calendar gregorian = getCard("FN:A\r\nORG:B\r\nBDAY:15-10-1582").getBirthday();
+		julian.add(Calendar.DAY_OF_MONTH, 1);
+		assertEquals(gregorian.get(Calendar.YEAR)+"-"+gregorian.get(Calendar.MONTH)+"-"+gregorian.get(Calendar.DAY_OF_MONTH),
+				julian.get(Calendar.YEAR)+"-"+julian.get(Calendar.MONTH)+"-"+julian.get(Calendar.DAY_OF_MONTH));
+		ContactCardStore store = new ContactCardStore();
+		store.add(getCard("FN:A\r\nORG:B\r\nBDAY:29-02-1500"));
+		Calendar stored = store.get(0).getBirthday();
+		assertEquals("1500-2-29", stored.get(Calendar.YEAR)+"-"+(stored.get(Calendar.MONTH)+1)+"-"+stored.get(Calendar.DAY_OF_MONTH));
+		assertTrue(toVCard(getCard("FN:A\r\nORG:B\r\nBDAY:29-02-1500")).contains("\r\nBDAY:29-02-1500\r\n"));
+	}
+	
+	@Test
+	public void birthdayExceptionNotDate(){
+		String[] dates = {"", "01-04", "01 -04-1940", "+1-04-1940", "01-04-0", "29-02-1900", "31-04-1940", "1940-04-01", "10-10-1582", "29-02-1700"};
+		for (String date : dates) {
+			try {
+				getCard("FN:A\r\nORG:B\r\nBDAY:"+date);
+				fail("InputMismatchException expected with BDAY:"+date);
+			} catch (InputMismatchException e) {
+			}
+		}
+	}
+	
+	@Test
+	public void writeAndParseAgain() throws IOException{
+		for (String text : GOOD) {
+			ContactCard card = getCard(text);
+			ContactCard copy = impl.getInstance(toVCard(card));
+			String message = "VCardWriter round trip failed with this text:\n"+text+"\n";
+			assertEquals(message, card.getFullName(), copy.getFullName());
+			assertEquals(message, card.getOrganization(), copy.getOrganization());
+			assertEquals(message, card.isWoman(), copy.isWoman());
+			assertEquals(message, ContactCardImpl.phones(card).keySet(), ContactCardImpl.phones(copy).keySet());
+			for (String type : ContactCardImpl.phones(card).keySet())
+				assertEquals(message, card.getPhone(type), copy.getPhone(type));
+		}
+		assertEquals(getCard(GOOD[1]).getBirthday(), 
+				impl.getInstance(toVCard(getCard(GOOD[1]))).getBirthday());
+	}
+	
+	@Test
+	public void storeAndWriteOtherImplementationJulianBirthday() throws IOException{
+		//a valid Julian leap day and a calendar in a time zone far from the default one
+		Calendar julian = new GregorianCalendar(1500, Calendar.FEBRUARY, 29);
+		Calendar kiritimati = new GregorianCalendar(TimeZone.getTimeZone("Pacific/Kiritimati"));
+		kiritimati.clear();
+		kiritimati.set(1940, Calendar.APRIL, 10);
+		for (Calendar bday : Arrays.asList(julian, kiritimati)) {
+			String date = String.format("%02d-%02d-%04d", bday.get(Calendar.DAY_OF_MONTH), bday.get(Calendar.MONTH)+1, bday.get(Calendar.YEAR));
+			ContactCard card = otherCard(bday);
+			ContactCardStore store = new ContactCardStore();
+			Calendar stored = store.get(store.add(card)).getBirthday();
+			assertEquals(date, String.format("%02d-%02d-%04d", stored.get(Calendar.DAY_OF_MONTH), stored.get(Calendar.MONTH)+1, stored.get(Calendar.YEAR)));
+			assertTrue(toVCard(card).contains("\r\nBDAY:"+date+"\r\n"));
+			assertTrue(toVCard(store.get(0)).contains("\r\nBDAY:"+date+"\r\n"));
+			assertEquals(1, new BirthdayIndex(Arrays.asList(card)).getUpcoming(LocalDate.of(2024, 1, 1), 366).size());
+		}
+	}
+	
+	@Test
+	public void storeAndWriteOtherImplementation() throws IOException{
+		ContactCard card = new ContactCard() {
+			public ContactCard getInstance(Scanner scanner) { return null; }
+			public ContactCard getInstance(String data) { return null; }
+			public String getFullName() { return "Chuck Norris"; }
+			public String getOrganization() { return "Hollywood"; }
+			public boolean isWoman() { return false; }
+			public Calendar getBirthday() { return getCard(GOOD[1]).getBirthday(); }
+			public Period getAge() { return getCard(GOOD[1]).getAge(); }
+			public int getAgeYears() { return getCard(GOOD[1]).getAgeYears(); }
+			public String getPhone(String type) { return getCard(GOOD[1]).getPhone(type); }
+		};
+		ContactCardStore store = new ContactCardStore();
+		ContactCard stored = store.get(store.add(card));
+		assertEquals("Chuck Norris", stored.getFullName());
+		assertEquals(card.getBirthday(), stored.getBirthday());
+		assertEquals(0, new PhoneIndex(Arrays.asList(card)).size());
+		ContactCard copy = impl.getInstance(toVCard(card));
+		assertEquals("Hollywood", copy.getOrganization());
+		assertEquals(card.getBirthday(), copy.getBirthday());
+		
+		//phones of store views are copied
+		ContactCard parsed = getCard(GOOD[1]);
+		ContactCard view = store.get(store.add(parsed));
+		assertEquals("(123) 456-7890", view.getPhone("WORK"));
+		assertEquals(1, new PhoneIndex(Arrays.asList(view)).size());
+		assertEquals("(123) 456-7890", impl.getInstance(toVCard(view)).getPhone("WORK"));
+	}
+	
+	@Test
+	public void upcomingBirthdaysFromFebruary29(){
+		List<ContactCard> cards = new ArrayList<>();
+		for (String bday : new String[] {"29-02-1980", "28-02-1981", "01-03-1982"})
+			cards.add(getCard("FN:"+bday+"\r\nORG:O\r\nBDAY:"+bday));
+		List<String> upcoming = new ArrayList<>();
+		for (Map.Entry<LocalDate, ContactCard> entry : new BirthdayIndex(cards).getUpcoming(LocalDate.of(2024, 2, 29), 400))
+			upcoming.add(entry.getKey()+" "+entry.getValue().getFullName());
+		assertEquals(Arrays.asList("2024-02-29 29-02-1980", "2024-03-01 01-03-1982", "2025-02-28 28-02-1981"), upcoming);
+	}
+	
+	@Test
+	public void readCrLfSplitAcrossReads(){
+		//every read returns one char, so each "\r\n" is split between two buffers
+		String text = "BEGIN:VCARD\r\n"+GOOD[1]+"\r\nEND:VCARD\r\n\r\njunk\r\nBEGIN:VCARD\r\n"+GOOD[0]+"\r\nEND:VCARD\r\n";
+		List<Long> errorLines = new ArrayList<>();
+		List<String> names = readNames(new VCardReader(oneCharPerRead(text)), errorLines);
+		assertEquals(Arrays.asList("Chuck Norris", "Forrest Gump"), names);
+		assertEquals(Arrays.asList(8L), errorLines);
+	}
+	
+	@Test
+	public void readCardInterruptedByBegin(){
+		String text = "BEGIN:VCARD\nFN:Broken\nBEGIN:VCARD\n"+GOOD[0]+"\nEND:VCARD";
+		List<Long> errorLines = new ArrayList<>();
+		List<NoSuchElementException> errors = new ArrayList<>();
+		VCardReader reader = new VCardReader(new StringReader(text));
+		reader.setErrorHandler((line, cause) -> { errorLines.add(line); errors.add(cause); });
+		List<String> names = new ArrayList<>();
+		try (Stream<ContactCard> cards = reader.cards()) {
+			cards.forEach(card -> names.add(card.getFullName()));
+		}
+		assertEquals(Arrays.asList("Forrest Gump"), names);
+		assertEquals(Arrays.asList(1L), errorLines);
+		assertEquals(NoSuchElementException.class, errors.get(0).getClass());
+	}
+	
+	@Test
+	public void readJunkOutsideCards(){
+		//one error per run of non-empty lines outside cards; empty lines are not errors
+		String text = "junk\nmore junk\n\nBEGIN:VCARD\n"+GOOD[1]+"\nEND:VCARD\n\n\ntail\n";
+		List<Long> errorLines = new ArrayList<>();
+		List<String> names = readNames(new VCardReader(new StringReader(text)), errorLines);
+		assertEquals(Arrays.asList("Chuck Norris"), names);
+		assertEquals(Arrays.asList(1L, 12L), errorLines);
+	}
+	
+	@Test
+	public void readInOrderWithReadAhead() throws InterruptedException{
+		StringBuilder text = new StringBuilder();
+		int count = 5000; //several chunks of VCardReader.CHUNK_LENGTH chars
+		for (int i = 0; i < count; i++)
+			text.append("BEGIN:VCARD\r\nFN:N").append(i).append("\r\nORG:O\r\nTEL;TYPE=HOME:4951234567\r\nEND:VCARD\r\n");
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		AtomicInteger submitted = new AtomicInteger();
+		try {
+			VCardReader reader = new VCardReader(new StringReader(text.toString()));
+			reader.setReadAhead(4);
+			//the first chunk is parsed last
+			reader.setExecutor(task -> pool.execute(submitted.getAndIncrement() > 0 ? task : () -> {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				task.run();
+			}));
+			List<Long> errorLines = new ArrayList<>();
+			List<String> names = readNames(reader, errorLines);
+			assertEquals(count, names.size());
+			for (int i = 0; i < count; i++)
+				assertEquals("N"+i, names.get(i));
+			assertEquals(0, errorLines.size());
+			assertTrue(submitted.get() > 1);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+	
+	private static List<String> readNames(VCardReader reader, List<Long> errorLines){
+		reader.setErrorHandler((line, cause) -> errorLines.add(line));
+		try (Stream<ContactCard> cards = reader.cards()) {
+			return cards.map(ContactCard::getFullName).collect(Collectors.toList());
+		}
+	}
+	
+	private static Reader oneCharPerRead(String text){
+		return new FilterReader(new StringReader(text)) {
+			@Override
+			public int read(char[] buffer, int offset, int length) throws IOException {
+				return super.read(buffer, offset, Math.min(length, 1));
+			}
+		};
+	}
+	
+	@Test
+	public void writeBirthdayYearLimits() throws IOException{
+		for (String date : new String[] {"01-01-0001", "01-01-12345", "31-12-292278994"}) {
+			ContactCard card = getCard("FN:A\r\nORG:B\r\nBDAY:"+date);
+			String vCard = toVCard(card);
+			assertTrue(vCard, vCard.contains("\r\nBDAY:"+date+"\r\n"));
+			assertEquals(card.getBirthday(), impl.getInstance(vCard).getBirthday());
+		}
+		//1 BC cannot be read back
+		Calendar bc = new GregorianCalendar(1, Calendar.JANUARY, 1);
+		bc.set(Calendar.ERA, GregorianCalendar.BC);
+		try {
+			toVCard(otherCard(bc));
+			fail("IllegalArgumentException expected for a birthday before 1 AD");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+	
+	/**
+	 * A card of another ContactCard implementation, without phones.
+	 */
+	private static ContactCard otherCard(Calendar bday){
+		return new ContactCard() {
+			public ContactCard getInstance(Scanner scanner) { return null; }
+			public ContactCard getInstance(String data) { return null; }
+			public String getFullName() { return "A"; }
+			public String getOrganization() { return "B"; }
+			public boolean isWoman() { return false; }
+			public Calendar getBirthday() { return (Calendar) bday.clone(); }
+			public Period getAge() { return null; }
+			public int getAgeYears() { return 0; }
+			public String getPhone(String type) { throw new NoSuchElementException(); }
+		};
+	}
+	
+	private static String toVCard(ContactCard card) throws IOException{
+		StringWriter out = new StringWriter();
+		try (VCardWriter writer = new VCardWriter(out)) {
+			writer.write(card);
+		}
+		return out.toString();
+	}
+	
 }
\ No newline at end of file
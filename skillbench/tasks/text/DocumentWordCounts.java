@@ -0,0 +1,105 @@
+package ru.skillbench.tasks.text;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемые счетчики слов одного документа в виде двух массивов примитивов:
+ *  номера слов по {@link WordDictionary} в порядке возрастания и количества их вхождений.<br/>
+ * Строки создаются только методами, которые явно переводят номера в слова.
+ */
+public final class DocumentWordCounts {
+    private final int[] ids;
+    private final long[] counts;
+
+    DocumentWordCounts(int[] ids, long[] counts) {
+        this.ids = ids;
+        this.counts = counts;
+    }
+
+    /**
+     * @return число различных слов в документе
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return номер <code>i</code>-го слова документа (номера возрастают с <code>i</code>)
+     */
+    public int idAt(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @return количество вхождений <code>i</code>-го слова документа
+     */
+    public long countAt(int i) {
+        return counts[i];
+    }
+
+    /**
+     * @return количество вхождений слова с номером <code>id</code> или 0, если его нет в документе
+     */
+    public long count(int id) {
+        int i = Arrays.binarySearch(ids, id);
+        return i < 0 ? 0 : counts[i];
+    }
+
+    /**
+     * @return число всех слов документа (с повторами)
+     */
+    public long totalCount() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return копия номеров слов документа в порядке возрастания
+     */
+    public int[] ids() {
+        return ids.clone();
+    }
+
+    /**
+     * @return копия количеств вхождений в порядке {@link #ids()}
+     */
+    public long[] counts() {
+        return counts.clone();
+    }
+
+    /**
+     * Переводит номера в слова, как в {@link WordCounter#getWordCounts()}.
+     * @param dictionary словарь, по которому подсчитан документ
+     */
+    public Map<String, Long> toMap(WordDictionary dictionary) {
+        Map<String, Long> map = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++) {
+            map.put(dictionary.word(ids[i]), counts[i]);
+        }
+        return map;
+    }
+
+    /**
+     * Переводит номера в слова и упорядочивает их, как в {@link WordCounter#getWordCountsSorted()}.
+     * @param dictionary словарь, по которому подсчитан документ
+     */
+    public List<Map.Entry<String, Long>> toSortedList(WordDictionary dictionary) {
+        List<Map.Entry<String, Long>> list = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            list.add(new AbstractMap.SimpleImmutableEntry<>(dictionary.word(ids[i]), counts[i]));
+        }
+        list.sort((first, second) -> {
+            int compare = second.getValue().compareTo(first.getValue());
+            return compare != 0 ? compare : first.getKey().compareTo(second.getKey());
+        });
+        return list;
+    }
+}
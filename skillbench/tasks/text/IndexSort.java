@@ -0,0 +1,115 @@
+package ru.skillbench.tasks.text;
+
+import java.util.Arrays;
+
+/**
+ * Упорядочение номеров элементов (ячеек таблицы, n-грамм и т.п.) по сравнению самих элементов:
+ *  номера хранятся в <code>int[]</code>, поэтому ни сортировка, ни отбор первых k не создают объектов {@link Integer}.
+ */
+final class IndexSort {
+    /**
+     * Сравнение элементов по их номерам, как в {@link java.util.Comparator}.
+     */
+    interface IndexComparator {
+        int compare(int a, int b);
+    }
+
+    private IndexSort() {
+    }
+
+    /**
+     * Устойчиво упорядочивает номера <code>order[from..to)</code> сортировкой слиянием
+     *  (короткие участки - вставками).
+     */
+    static void sort(int[] order, int from, int to, IndexComparator comparator) {
+        sort(order, new int[to], from, to, comparator);
+    }
+
+    private static void sort(int[] order, int[] buffer, int from, int to, IndexComparator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int index = order[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(order[j], index) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = index;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(order, buffer, from, middle, comparator);
+        sort(order, buffer, middle, to, comparator);
+        if (comparator.compare(order[middle - 1], order[middle]) <= 0) return;
+        System.arraycopy(order, from, buffer, from, to - from);
+        int i = from, j = middle, k = from;
+        while (i < middle && j < to) {
+            order[k++] = comparator.compare(buffer[i], buffer[j]) <= 0 ? buffer[i++] : buffer[j++];
+        }
+        while (i < middle) order[k++] = buffer[i++];
+        while (j < to) order[k++] = buffer[j++];
+    }
+
+    /**
+     * Куча из не более чем <code>capacity</code> номеров для отбора k первых элементов за O(n log k);
+     *  в корне - худший из отобранных.
+     */
+    static final class TopHeap {
+        private final int[] heap;
+        private final IndexComparator comparator;
+        private int size;
+
+        TopHeap(int capacity, IndexComparator comparator) {
+            this.heap = new int[capacity];
+            this.comparator = comparator;
+        }
+
+        void offer(int index) {
+            if (size < heap.length) {
+                heap[size] = index;
+                siftUp(size++);
+            } else if (size > 0 && comparator.compare(index, heap[0]) < 0) {
+                heap[0] = index;
+                siftDown(0, size);
+            }
+        }
+
+        /**
+         * Пирамидальная сортировка: худшие элементы по очереди уходят в конец массива.
+         * @return отобранные номера по порядку; куча после этого не используется
+         */
+        int[] toSortedArray() {
+            for (int end = size - 1; end > 0; end--) {
+                int worst = heap[0];
+                heap[0] = heap[end];
+                heap[end] = worst;
+                siftDown(0, end);
+            }
+            return size == heap.length ? heap : Arrays.copyOf(heap, size);
+        }
+
+        private void siftUp(int i) {
+            int index = heap[i];
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (comparator.compare(heap[parent], index) >= 0) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = index;
+        }
+
+        private void siftDown(int i, int end) {
+            int index = heap[i];
+            int child;
+            while ((child = 2 * i + 1) < end) {
+                if (child + 1 < end && comparator.compare(heap[child + 1], heap[child]) > 0) child++;
+                if (comparator.compare(index, heap[child]) >= 0) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = index;
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Подсчет n-грамм - последовательностей из n подряд идущих слов (n от 1 до {@link #MAX_N}).<br/>
+ * Текст разбирается на слова по правилам {@link WordCounterImpl}, слова заменяются номерами по {@link WordDictionary},
+ *  а n-грамма хранится как n номеров слов с полиномиальным хешем, который пересчитывается скользящим окном
+ *  за O(1) на каждое слово. Строка n-граммы (слова через один пробел) создается только при выдаче результата.<br/>
+ * N-граммы не переходят границу между текстами, переданными разными вызовами {@link #add(CharSequence)}.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class NGramCounter {
+    /**
+     * Наибольшая длина n-граммы
+     */
+    public static final int MAX_N = 5;
+    private static final int BASE = 0x01000193;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final int n;
+    /** BASE в степени n - 1: вес самого старого слова окна в хеше */
+    private final int oldestWeight;
+    private final WordDictionary dictionary = new WordDictionary();
+    private final WordTokenizer tokenizer = new WordTokenizer(this::word);
+
+    /** Номера последних n слов текущего текста (кольцевой буфер) */
+    private final int[] window;
+    private int windowStart;
+    private int windowSize;
+    private int windowHash;
+
+    /** Хеш-таблица с открытой адресацией: номер n-граммы + 1 или 0 */
+    private int[] table = new int[128];
+    /** Номера слов n-грамм подряд: n-грамма i занимает [i * n, i * n + n) */
+    private int[] grams;
+    private int[] hashes = new int[64];
+    private long[] counts = new long[64];
+    /** Строки уже выданных n-грамм */
+    private String[] phrases = new String[64];
+    private int size;
+
+    /**
+     * @param n длина n-граммы в словах, от 1 до {@link #MAX_N}
+     * @throws IllegalArgumentException если <code>n</code> вне этих пределов
+     */
+    public NGramCounter(int n) {
+        if (n < 1 || n > MAX_N) throw new IllegalArgumentException("n: " + n);
+        this.n = n;
+        int weight = 1;
+        for (int i = 1; i < n; i++) {
+            weight *= BASE;
+        }
+        this.oldestWeight = weight;
+        this.window = new int[n];
+        this.grams = new int[64 * n];
+    }
+
+    /**
+     * @return n-граммы текста <code>text</code>
+     * @throws IllegalStateException если <code>text</code> равен <code>null</code> (текст для анализа не задан)
+     */
+    static NGramCounter count(int n, CharSequence text) {
+        NGramCounter counter = new NGramCounter(n);
+        if (text == null) throw new IllegalStateException();
+        counter.add(text);
+        return counter;
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    /**
+     * Учитывает n-граммы очередного текста.
+     * @param text текст
+     */
+    public void add(CharSequence text) {
+        tokenizer.feed(text, 0, text.length());
+        tokenizer.finish();
+        clearWindow();
+    }
+
+    /**
+     * Учитывает n-граммы текста, читаемого из <code>reader</code> до конца (поток не закрывается).
+     * @param reader источник текста
+     * @throws IOException при ошибке чтения (n-граммы уже прочитанной части остаются учтенными)
+     */
+    public void add(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                tokenizer.feed(buffer, 0, read);
+            }
+        } finally {
+            tokenizer.finish();
+            clearWindow();
+        }
+    }
+
+    private void clearWindow() {
+        windowStart = 0;
+        windowSize = 0;
+        windowHash = 0;
+    }
+
+    /**
+     * @return число различных n-грамм
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return количество вхождений n-граммы (слова в нижнем регистре через один пробел)
+     *   или 0, если она не встречалась
+     */
+    public long getCount(String phrase) {
+        String[] words = phrase.split(" ", -1);
+        if (words.length != n) return 0;
+        int[] ids = new int[n];
+        int hash = 0;
+        for (int i = 0; i < n; i++) {
+            int id = dictionary.idOf(words[i]);
+            if (id < 0) return 0;
+            ids[i] = id;
+            hash = hash * BASE + id;
+        }
+        int gram = find(hash, ids, 0);
+        return gram < 0 ? 0 : counts[gram];
+    }
+
+    /**
+     * Как {@link WordCounter#getWordCounts()}, но ключи - n-граммы: слова через один пробел.
+     */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> map = new HashMap<>(size * 4 / 3 + 1);
+        for (int gram = 0; gram < size; gram++) {
+            map.put(phrase(gram), counts[gram]);
+        }
+        return map;
+    }
+
+    /**
+     * Как {@link WordCounter#getWordCountsSorted()}: по убыванию количества, затем по алфавиту.
+     */
+    public List<Map.Entry<String, Long>> getCountsSorted() {
+        int[] order = new int[size];
+        for (int gram = 0; gram < size; gram++) {
+            order[gram] = gram;
+        }
+        IndexSort.sort(order, 0, size, this::compare);
+        return entries(order);
+    }
+
+    /**
+     * Как {@link WordCounter#getTopWords(int)}: <code>k</code> самых частых n-грамм кучей из <code>k</code> элементов;
+     *  строки создаются для выданных n-грамм и для тех, чьи количества совпали при сравнении.
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     */
+    public List<Map.Entry<String, Long>> getTop(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        if (k == 0) return new ArrayList<>();
+        IndexSort.TopHeap heap = new IndexSort.TopHeap(Math.min(k, size), this::compare);
+        for (int gram = 0; gram < size; gram++) {
+            heap.offer(gram);
+        }
+        return entries(heap.toSortedArray());
+    }
+
+    private List<Map.Entry<String, Long>> entries(int[] order) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(order.length);
+        for (int gram : order) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(phrase(gram), counts[gram]));
+        }
+        return result;
+    }
+
+    private int compare(int a, int b) {
+        int compare = Long.compare(counts[b], counts[a]);
+        return compare != 0 ? compare : phrase(a).compareTo(phrase(b));
+    }
+
+    private String phrase(int gram) {
+        String phrase = phrases[gram];
+        if (phrase == null) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < n; i++) {
+                if (i > 0) sb.append(' ');
+                sb.append(dictionary.word(grams[gram * n + i]));
+            }
+            phrases[gram] = phrase = sb.toString();
+        }
+        return phrase;
+    }
+
+    private void word(char[] chars, int length, int hash) {
+        int id = dictionary.add(chars, length, hash);
+        if (windowSize == n) {
+            windowHash -= window[windowStart] * oldestWeight;
+            window[windowStart] = id;
+            windowStart = (windowStart + 1) % n;
+        } else {
+            window[(windowStart + windowSize) % n] = id;
+            windowSize++;
+        }
+        windowHash = windowHash * BASE + id;
+        if (windowSize == n) count();
+    }
+
+    private void count() {
+        int gram = find(windowHash, window, windowStart);
+        if (gram >= 0) {
+            counts[gram]++;
+            return;
+        }
+        if (size == counts.length) {
+            grams = Arrays.copyOf(grams, grams.length * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+            counts = Arrays.copyOf(counts, size * 2);
+            phrases = Arrays.copyOf(phrases, size * 2);
+        }
+        gram = size++;
+        for (int i = 0; i < n; i++) {
+            grams[gram * n + i] = window[(windowStart + i) % n];
+        }
+        hashes[gram] = windowHash;
+        counts[gram] = 1;
+        insert(gram);
+        if (size * 3 > table.length * 2) {
+            resize();
+        }
+    }
+
+    /**
+     * Ищет n-грамму из номеров слов <code>ids</code>, начиная с <code>ids[start]</code> (по кругу).
+     */
+    private int find(int hash, int[] ids, int start) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int gram = entry - 1;
+            if (hashes[gram] == hash && matches(gram, ids, start)) return gram;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean matches(int gram, int[] ids, int start) {
+        for (int i = 0; i < n; i++) {
+            if (grams[gram * n + i] != ids[(start + i) % n]) return false;
+        }
+        return true;
+    }
+
+    private void insert(int gram) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hashes[gram]) & mask;
+        while (table[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        table[i] = gram + 1;
+    }
+
+    private void resize() {
+        table = new int[table.length * 2];
+        for (int gram = 0; gram < size; gram++) {
+            insert(gram);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package ru.skillbench.tasks.text;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Обратный поиск по номеру телефона в списке визитных карточек: "чей это номер".<br/>
+ * Номера хранятся числами ({@link PhoneNumbers}) в хеш-таблице с открытой адресацией без объектов на элемент;
+ *  номером карточки служит ее индекс в списке. Один номер может принадлежать нескольким карточкам
+ *  (и нескольким типам телефона одной карточки): владельцы номера связаны в цепочку через массив next.<br/>
+ * Индекс строится один раз по текущему содержимому списка и затем не меняется (список тоже не должен меняться);
+ *  он может использоваться из нескольких потоков.
+ */
+public class PhoneIndex {
+    private static final int[] NO_CARDS = new int[0];
+
+    private final List<? extends ContactCard> cards;
+    /** Хеш-таблица: номер телефона и последний элемент цепочки его владельцев + 1 (0 - пустая ячейка) */
+    private long[] keys = new long[64];
+    private int[] heads = new int[64];
+    private int size;
+
+    /** Элементы цепочек: номер карточки и предыдущий элемент цепочки + 1 (0 - конец цепочки) */
+    private int[] cardIds = new int[64];
+    private int[] next = new int[64];
+    private int entries;
+
+    /**
+     * Строит индекс телефонов карточек <code>cards</code>
+     *  (телефоны известны только карточкам {@link ContactCardImpl} и представлениям {@link ContactCardStore};
+     *  у других реализаций {@link ContactCard} их типы нельзя перечислить, и такие карточки не индексируются).
+     */
+    public PhoneIndex(List<? extends ContactCard> cards) {
+        this.cards = cards;
+        int id = 0;
+        for (ContactCard card : cards) {
+            for (String digits : ContactCardImpl.phones(card).values()) {
+                add(PhoneNumbers.parse(digits), id);
+            }
+            id++;
+        }
+    }
+
+    private void add(long number, int id) {
+        int mask = keys.length - 1;
+        int i = spread(number) & mask;
+        int head;
+        while ((head = heads[i]) != 0) {
+            if (keys[i] == number) break;
+            i = (i + 1) & mask;
+        }
+        // карточки добавляются по возрастанию индекса, поэтому повтор может быть только в начале цепочки
+        if (head != 0 && cardIds[head - 1] == id) return;
+        if (entries == cardIds.length) {
+            cardIds = Arrays.copyOf(cardIds, entries * 2);
+            next = Arrays.copyOf(next, entries * 2);
+        }
+        cardIds[entries] = id;
+        next[entries] = head;
+        heads[i] = ++entries;
+        if (head == 0) {
+            keys[i] = number;
+            if (++size * 3 > keys.length * 2) {
+                resize();
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldHeads[j] == 0) continue;
+            int i = spread(oldKeys[j]) & mask;
+            while (heads[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            heads[i] = oldHeads[j];
+        }
+    }
+
+    private static int spread(long number) {
+        return WordCountMap.spread((int) (number ^ (number >>> 32)));
+    }
+
+    /**
+     * @return число различных номеров телефонов
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param number 10 цифр номера как число (см. {@link PhoneNumbers#parse(CharSequence)})
+     * @return индексы карточек с этим номером по возрастанию (пустой массив, если таких нет)
+     */
+    public int[] getCardIds(long number) {
+        int mask = keys.length - 1;
+        int i = spread(number) & mask;
+        int head;
+        while ((head = heads[i]) != 0) {
+            if (keys[i] == number) break;
+            i = (i + 1) & mask;
+        }
+        if (head == 0) return NO_CARDS;
+        int count = 0;
+        for (int entry = head; entry != 0; entry = next[entry - 1]) {
+            count++;
+        }
+        int[] ids = new int[count];
+        for (int entry = head; entry != 0; entry = next[entry - 1]) {
+            ids[--count] = cardIds[entry - 1];
+        }
+        return ids;
+    }
+
+    /**
+     * Возвращает карточки с номером <code>phone</code> из списка, по которому построен индекс.
+     * @param phone 10 цифр номера, возможно разделенных другими символами, например "4951234567" или "(495) 123-4567"
+     * @throws IllegalArgumentException если в <code>phone</code> не 10 цифр
+     */
+    public List<ContactCard> getOwners(CharSequence phone) {
+        int[] ids = getCardIds(PhoneNumbers.parse(phone));
+        return new Owners(ids);
+    }
+
+    /**
+     * Неизменяемый список карточек с индексами ids.
+     */
+    private final class Owners extends AbstractList<ContactCard> implements RandomAccess {
+        private final int[] ids;
+
+        Owners(int[] ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public ContactCard get(int index) {
+            return cards.get(ids[index]);
+        }
+
+        @Override
+        public int size() {
+            return ids.length;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ru.skillbench.tasks.text;
+
+/**
+ * Номера телефонов визитных карточек как числа: 10 цифр номера (с ведущими нулями) помещаются в один long.<br/>
+ * Вид номера - как в {@link ContactCard#getPhone(String)}: "(123) 456-7890"; его можно записать прямо
+ *  в буфер вызывающего кода методом {@link #format(long, char[], int)}, не создавая строк.
+ */
+public final class PhoneNumbers {
+    /**
+     * Длина номера в виде "(123) 456-7890"
+     */
+    public static final int FORMATTED_LENGTH = 14;
+    private static final int DIGITS = 10;
+
+    private PhoneNumbers() {
+    }
+
+    /**
+     * Собирает число из 10 цифр <code>phone</code>, пропуская остальные символы,
+     *  поэтому подходят и номер из одних цифр, и номер в виде "(123) 456-7890".
+     * @throws IllegalArgumentException если цифр не 10
+     */
+    public static long parse(CharSequence phone) {
+        long number = 0;
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                digits++;
+            }
+        }
+        if (digits != DIGITS) throw new IllegalArgumentException("phone: " + phone);
+        return number;
+    }
+
+    /**
+     * Записывает номер в виде "(123) 456-7890" в <code>buffer</code> начиная с <code>offset</code>.
+     * @return позиция после записанного номера (<code>offset + </code>{@link #FORMATTED_LENGTH})
+     * @throws IllegalArgumentException если номер отрицателен или длиннее 10 цифр
+     * @throws IndexOutOfBoundsException если номер не помещается в буфер
+     */
+    public static int format(long number, char[] buffer, int offset) {
+        if (number < 0 || number >= 10_000_000_000L) throw new IllegalArgumentException("number: " + number);
+        if (offset < 0 || offset > buffer.length - FORMATTED_LENGTH) {
+            throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + buffer.length);
+        }
+        buffer[offset] = '(';
+        buffer[offset + 4] = ')';
+        buffer[offset + 5] = ' ';
+        buffer[offset + 9] = '-';
+        int i = offset + FORMATTED_LENGTH;
+        while (--i > offset) {
+            if (i == offset + 9 || i == offset + 5 || i == offset + 4) continue;
+            buffer[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return offset + FORMATTED_LENGTH;
+    }
+
+    /**
+     * @return номер в виде "(123) 456-7890"
+     */
+    public static String format(long number) {
+        char[] chars = new char[FORMATTED_LENGTH];
+        format(number, chars, 0);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,708 @@
+package ru.skillbench.tasks.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Подсчет слов в корпусе, словарь которого не помещается в памяти (схема map-reduce на одной машине).<br/>
+ * Слова разбираются по правилам {@link WordCounterImpl} и по хешу распределяются по разделам;
+ *  когда оценка памяти, занятой счетчиками раздела, превышает его долю бюджета памяти, счетчики сбрасываются
+ *  на диск упорядоченным прогоном в формате {@link WordCountSnapshot}. При запросе результата прогоны каждого раздела
+ *  сливаются в один (разделы не пересекаются по словам), а затем слова всех разделов упорядочиваются
+ *  внешней сортировкой в порядке {@link WordCounter#getWordCountsSorted()}.<br/>
+ * Временные файлы создаются в отдельном подкаталоге и удаляются методом {@link #close()}.<br/>
+ * Как {@link WordCounter}: {@link #setText(String)} и {@link #setInput(Reader)} заменяют все счетчики
+ *  счетчиками нового текста, {@link #appendText(CharSequence)} продолжает этот текст (слово или тег,
+ *  разорванные между частями, учитываются так же, как в цельном тексте), а <code>add</code> прибавляет
+ *  независимые документы. {@link #getText()} возвращает текст, только пока счетчики соответствуют ему.
+ *  Методы {@link WordCounter} не объявляют {@link IOException}, поэтому ошибки временных файлов
+ *  выбрасываются из них как {@link UncheckedIOException}. Без документов результаты пусты,
+ *  а не {@link IllegalStateException}.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class SpillingWordCounter implements WordCounter, Closeable {
+    /**
+     * Бюджет памяти по умолчанию (в байтах)
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    /**
+     * Число разделов по умолчанию
+     */
+    public static final int DEFAULT_PARTITIONS = 16;
+    /** Приблизительный размер в памяти слова длиной 0 вместе с его ячейкой в {@link WordCountMap} */
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Получатель слов в порядке результата.
+     */
+    public interface EntryConsumer {
+        void accept(String word, long count) throws IOException;
+    }
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final long partitionBudget;
+    private final WordCountMap[] maps;
+    private final long[] memory;
+    private final List<List<Path>> runs;
+    /** Разборщик документов <code>add</code>; после каждого документа завершен */
+    private WordTokenizer tokenizer = new WordTokenizer(this::word);
+    /** Разборщик общего текста с незавершенным последним словом или тегом или null, если текста нет */
+    private WordTokenizer textTokenizer;
+    /** Текст, которому соответствуют счетчики, или null */
+    private String text;
+    /** Текст, продолженный {@link #appendText(CharSequence)}, пока его не запросили в {@link #getText()} */
+    private StringBuilder appended;
+    private int fileCounter;
+
+    private long totalChars;
+    private long totalWords;
+    private long documents;
+    private int spillCount;
+    private long spilledBytes;
+    private int mergeCount;
+
+    /**
+     * Счетчик с бюджетом памяти {@link #DEFAULT_MEMORY_BUDGET}, {@link #DEFAULT_PARTITIONS} разделами
+     *  и временными файлами в каталоге <code>java.io.tmpdir</code>.
+     * @throws IOException если не удалось создать каталог для временных файлов
+     */
+    public SpillingWordCounter() throws IOException {
+        this(Paths.get(System.getProperty("java.io.tmpdir")), DEFAULT_MEMORY_BUDGET, DEFAULT_PARTITIONS);
+    }
+
+    /**
+     * @param tempDirectory каталог, в котором создается подкаталог для временных файлов
+     * @param memoryBudget сколько байтов памяти (по оценке) могут занимать счетчики в памяти
+     *   и слова, сортируемые в памяти при упорядочивании результата
+     * @param partitions число разделов
+     * @throws IllegalArgumentException если <code>partitions</code> меньше 1
+     *   или <code>memoryBudget</code> меньше <code>partitions</code>
+     * @throws IOException если не удалось создать каталог для временных файлов
+     */
+    public SpillingWordCounter(Path tempDirectory, long memoryBudget, int partitions) throws IOException {
+        if (partitions < 1) throw new IllegalArgumentException("partitions < 1: " + partitions);
+        if (memoryBudget < partitions) throw new IllegalArgumentException("memoryBudget: " + memoryBudget);
+        this.memoryBudget = memoryBudget;
+        this.partitionBudget = memoryBudget / partitions;
+        this.maps = new WordCountMap[partitions];
+        this.memory = new long[partitions];
+        this.runs = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            maps[i] = new WordCountMap();
+            runs.add(new ArrayList<>());
+        }
+        this.directory = Files.createTempDirectory(tempDirectory, "wordcount");
+    }
+
+    /**
+     * Учитывает слова очередного документа.
+     * @param document текст документа
+     * @throws IOException при ошибке записи прогона на диск (слова документа, учтенные до ошибки, остаются,
+     *   а незавершенное слово отбрасывается и не склеивается со следующим документом)
+     */
+    public void add(CharSequence document) throws IOException {
+        Objects.requireNonNull(document);
+        try {
+            tokenizer.feed(document, 0, document.length());
+            tokenizer.finish();
+        } catch (UncheckedIOException e) {
+            tokenizer = new WordTokenizer(this::word);
+            throw e.getCause();
+        }
+        totalChars += document.length();
+        documents++;
+        textChanged();
+    }
+
+    /**
+     * Учитывает слова документа, читаемого из <code>reader</code> до конца (поток не закрывается).
+     * @param reader источник текста документа
+     * @throws IOException при ошибке чтения или записи прогона на диск (как в {@link #add(CharSequence)})
+     */
+    public void add(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        boolean done = false;
+        try {
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                tokenizer.feed(buffer, 0, n);
+                totalChars += n;
+            }
+            tokenizer.finish();
+            done = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            if (!done) tokenizer = new WordTokenizer(this::word);
+        }
+        documents++;
+        textChanged();
+    }
+
+    /**
+     * Документ <code>add</code> изменил счетчики: они больше не соответствуют общему тексту.
+     */
+    private void textChanged() {
+        text = null;
+        appended = null;
+    }
+
+    /**
+     * Заменяет все счетчики счетчиками текста <code>text</code> как единственного документа;
+     *  при <code>text</code> = <code>null</code> только сбрасывает их.
+     * @throws UncheckedIOException при ошибке записи прогона на диск (тогда счетчики сброшены)
+     */
+    @Override
+    public void setText(String text) {
+        try {
+            reset();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (text == null) return;
+        WordTokenizer reading = new WordTokenizer(this::word);
+        documents++;
+        reading.feed(text, 0, text.length());
+        totalChars += text.length();
+        textTokenizer = reading;
+        this.text = text;
+    }
+
+    /**
+     * Заменяет все счетчики счетчиками текста, читаемого из <code>reader</code> до конца (поток не закрывается).
+     *  Текст не сохраняется, поэтому {@link #getText()} затем возвращает <code>null</code>,
+     *  а {@link #appendText(CharSequence)} продолжает прочитанный текст.
+     * @throws IOException при ошибке чтения или записи прогона на диск (тогда текст прерывается,
+     *   а учтенные до ошибки слова остаются)
+     */
+    @Override
+    public void setInput(Reader reader) throws IOException {
+        reset();
+        WordTokenizer reading = new WordTokenizer(this::word);
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                reading.feed(buffer, 0, n);
+                totalChars += n;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        textTokenizer = reading;
+        documents++;
+    }
+
+    /**
+     * Продолжает общий текст (если его нет - начинает новый документ) и прибавляет слова <code>piece</code>
+     *  к счетчикам. Слово или тег, начатые в конце прежнего текста, учитываются так же, как в цельном тексте.
+     * @param piece продолжение текста
+     * @throws UncheckedIOException при ошибке записи прогона на диск (тогда текст прерывается,
+     *   а учтенные до ошибки слова остаются)
+     */
+    @Override
+    public void appendText(CharSequence piece) {
+        Objects.requireNonNull(piece);
+        WordTokenizer continued = textTokenizer;
+        textTokenizer = null;
+        if (continued == null) {
+            if (documents == 0) appended = new StringBuilder();
+            continued = new WordTokenizer(this::word);
+            documents++;
+        }
+        if (text != null) {
+            appended = new StringBuilder(text);
+            text = null;
+        }
+        try {
+            continued.feed(piece, 0, piece.length());
+        } catch (UncheckedIOException e) {
+            appended = null;
+            throw e;
+        }
+        totalChars += piece.length();
+        if (appended != null) appended.append(piece);
+        textTokenizer = continued;
+    }
+
+    /**
+     * @return текст, заданный {@link #setText(String)} и продолженный {@link #appendText(CharSequence)},
+     *  если с тех пор не прибавлялись документы, иначе <code>null</code>
+     */
+    @Override
+    public String getText() {
+        if (text == null && appended != null) {
+            text = appended.toString();
+            appended = null;
+        }
+        return text;
+    }
+
+    /**
+     * Сбрасывает счетчики, общий текст и прогоны на диске.
+     */
+    private void reset() throws IOException {
+        textTokenizer = null;
+        textChanged();
+        for (int i = 0; i < maps.length; i++) {
+            maps[i] = new WordCountMap();
+            memory[i] = 0;
+        }
+        deleteRuns();
+        totalChars = 0;
+        totalWords = 0;
+        documents = 0;
+    }
+
+    private void word(char[] chars, int length, int hash) {
+        int partition = (int) (((hash * 0x85EBCA6BL) & 0xFFFFFFFFL) * maps.length >>> 32);
+        WordCountMap map = maps[partition];
+        int before = map.size();
+        map.add(chars, length, hash);
+        totalWords++;
+        if (map.size() > before) {
+            memory[partition] += ENTRY_OVERHEAD + 2L * length;
+            if (memory[partition] > partitionBudget) {
+                try {
+                    spill(partition);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    private void spill(int partition) throws IOException {
+        Path run = newFile("run");
+        WordCountSnapshot.write(maps[partition].asMap(), run);
+        runs.get(partition).add(run);
+        maps[partition] = new WordCountMap();
+        memory[partition] = 0;
+        spillCount++;
+        spilledBytes += Files.size(run);
+    }
+
+    private Path newFile(String prefix) {
+        return directory.resolve(prefix + "-" + (fileCounter++) + ".bin");
+    }
+
+    /**
+     * Сбрасывает на диск счетчики в памяти и сливает прогоны каждого раздела в один.
+     * @return снимки разделов
+     */
+    private List<WordCountSnapshot> mergePartitions() throws IOException {
+        List<WordCountSnapshot> snapshots = new ArrayList<>(maps.length);
+        for (int partition = 0; partition < maps.length; partition++) {
+            if (maps[partition].size() > 0) spill(partition);
+            List<Path> partitionRuns = runs.get(partition);
+            if (partitionRuns.size() > 1) {
+                Path merged = newFile("merged");
+                WordCountSnapshot.merge(partitionRuns, merged);
+                for (Path run : partitionRuns) {
+                    Files.delete(run);
+                }
+                partitionRuns.clear();
+                partitionRuns.add(merged);
+                mergeCount++;
+            }
+            if (!partitionRuns.isEmpty()) snapshots.add(WordCountSnapshot.open(partitionRuns.get(0)));
+        }
+        return snapshots;
+    }
+
+    /**
+     * Слова незавершенного конца общего текста: учитываются в результатах, но не в счетчиках,
+     *  чтобы {@link #appendText(CharSequence)} мог продолжить последнее слово.
+     * @return изменяемая таблица (пустая, если общего текста нет)
+     */
+    private Map<String, Long> pendingWords() {
+        if (textTokenizer == null) return new HashMap<>();
+        WordCountMap words = new WordCountMap();
+        textTokenizer.copy(words::add).finish();
+        return new HashMap<>(words.asMap());
+    }
+
+    /**
+     * Передает <code>consumer</code> все слова с количествами в порядке возрастания слов внутри раздела.
+     */
+    private void forEachWord(EntryConsumer consumer) throws IOException {
+        Map<String, Long> pending = pendingWords();
+        for (WordCountSnapshot snapshot : mergePartitions()) {
+            WordCountSnapshot.Cursor cursor = snapshot.cursor();
+            while (cursor.next()) {
+                String word = cursor.word();
+                long count = cursor.count();
+                if (!pending.isEmpty()) {
+                    Long extra = pending.remove(word);
+                    if (extra != null) count += extra;
+                }
+                consumer.accept(word, count);
+            }
+        }
+        for (Map.Entry<String, Long> entry : pending.entrySet()) {
+            consumer.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Передает <code>consumer</code> все слова с количествами в порядке {@link WordCounter#getWordCountsSorted()}.<br/>
+     * Слова, помещающиеся в бюджет памяти, сортируются в памяти; иначе они сортируются частями,
+     *  части записываются во временные файлы и сливаются.
+     * @throws IOException при ошибке чтения или записи временных файлов или ошибке <code>consumer</code>
+     */
+    public void forEachSorted(EntryConsumer consumer) throws IOException {
+        List<Path> sortedRuns = new ArrayList<>();
+        try {
+            Chunk[] chunk = {new Chunk()};
+            forEachWord((word, count) -> {
+                chunk[0].add(word, count);
+                if (chunk[0].memory > memoryBudget) {
+                    Path run = newFile("sorted");
+                    sortedRuns.add(run);
+                    chunk[0].write(run);
+                    chunk[0] = new Chunk();
+                }
+            });
+            if (sortedRuns.isEmpty()) {
+                chunk[0].forEach(consumer);
+                return;
+            }
+            if (chunk[0].size > 0) {
+                Path run = newFile("sorted");
+                sortedRuns.add(run);
+                chunk[0].write(run);
+            }
+            mergeSorted(sortedRuns, consumer);
+        } finally {
+            for (Path run : sortedRuns) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private static void mergeSorted(List<Path> sortedRuns, EntryConsumer consumer) throws IOException {
+        PriorityQueue<SortedRunReader> queue = new PriorityQueue<>(sortedRuns.size(),
+                (a, b) -> compare(a.word, a.count, b.word, b.count));
+        List<SortedRunReader> readers = new ArrayList<>(sortedRuns.size());
+        try {
+            for (Path run : sortedRuns) {
+                SortedRunReader reader = new SortedRunReader(run);
+                readers.add(reader);
+                if (reader.next()) queue.add(reader);
+            }
+            while (!queue.isEmpty()) {
+                SortedRunReader reader = queue.poll();
+                consumer.accept(reader.word, reader.count);
+                if (reader.next()) queue.add(reader);
+            }
+        } finally {
+            for (SortedRunReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Результат должен помещаться в памяти.
+     * @return новая таблица (пустая, если слов нет)
+     * @throws UncheckedIOException при ошибке чтения или записи временных файлов
+     */
+    @Override
+    public Map<String, Long> getWordCounts() {
+        Map<String, Long> result = new HashMap<>();
+        try {
+            forEachWord(result::put);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Результат должен помещаться в памяти - иначе используйте {@link #forEachSorted(EntryConsumer)}
+     *  или {@link #printSorted(Writer)}.
+     * @throws UncheckedIOException при ошибке чтения или записи временных файлов
+     */
+    @Override
+    public List<Map.Entry<String, Long>> getWordCountsSorted() {
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        try {
+            forEachSorted((word, count) -> result.add(new AbstractMap.SimpleImmutableEntry<>(word, count)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Как {@link WordCounter#getTopWords(int)}: слова отбираются кучей из <code>k</code> элементов
+     *  при одном проходе по разделам, без внешней сортировки.
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     * @throws UncheckedIOException при ошибке чтения или записи временных файлов
+     */
+    @Override
+    public List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        List<Map.Entry<String, Long>> result = new ArrayList<>();
+        if (k == 0) return result;
+        // в корне - худшее из отобранных слов
+        PriorityQueue<Map.Entry<String, Long>> heap = new PriorityQueue<>(k,
+                (a, b) -> compare(b.getKey(), b.getValue(), a.getKey(), a.getValue()));
+        try {
+            forEachWord((word, count) -> {
+                if (heap.size() == k) {
+                    Map.Entry<String, Long> worst = heap.peek();
+                    if (count < worst.getValue()) return;
+                    if (compare(word, count, worst.getKey(), worst.getValue()) >= 0) return;
+                    heap.poll();
+                }
+                heap.add(new AbstractMap.SimpleImmutableEntry<>(word, count));
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        while (!heap.isEmpty()) {
+            result.add(heap.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Печатает результат в формате {@link WordCounter#print(List, java.io.PrintStream)},
+     *  не собирая его в памяти, после чего вызывает {@link Writer#flush()}.
+     * @throws IOException при ошибке чтения, записи временных файлов или записи в <code>writer</code>
+     */
+    public void printSorted(Writer writer) throws IOException {
+        WordCountPrinter printer = new WordCountPrinter((chars, length) -> writer.write(chars, 0, length));
+        forEachSorted(printer::print);
+        printer.finish();
+        writer.flush();
+    }
+
+    /**
+     * Записывает результат в <code>path</code> в формате {@link WordCountSnapshot};
+     *  если запись не удалась, неполный файл удаляется.
+     * @throws IOException при ошибке чтения или записи
+     */
+    public void writeSnapshot(Path path) throws IOException {
+        List<WordCountSnapshot> snapshots = mergePartitions();
+        Map<String, Long> pending = pendingWords();
+        Path pendingRun = null;
+        try {
+            if (!pending.isEmpty()) {
+                // слова конца общего текста сливаются со счетчиками их раздела
+                pendingRun = newFile("pending");
+                WordCountSnapshot.write(pending, pendingRun);
+                snapshots.add(WordCountSnapshot.open(pendingRun));
+            }
+            try (WordCountSnapshot.SnapshotWriter writer = new WordCountSnapshot.SnapshotWriter(path)) {
+                WordCountSnapshot.merge(snapshots, writer);
+                writer.finish();
+            }
+        } finally {
+            if (pendingRun != null) Files.deleteIfExists(pendingRun);
+        }
+    }
+
+    /**
+     * @return число учтенных документов
+     */
+    public long getDocumentCount() {
+        return documents;
+    }
+
+    /**
+     * @return число разобранных символов
+     */
+    public long getProcessedChars() {
+        return totalChars;
+    }
+
+    /**
+     * @return число учтенных слов (с повторами)
+     */
+    public long getTotalWords() {
+        return totalWords;
+    }
+
+    /**
+     * @return сколько раз счетчики раздела сбрасывались на диск
+     */
+    public int getSpillCount() {
+        return spillCount;
+    }
+
+    /**
+     * @return суммарный размер сброшенных на диск прогонов в байтах
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    /**
+     * @return сколько раз прогоны раздела сливались в один
+     */
+    public int getMergeCount() {
+        return mergeCount;
+    }
+
+    /**
+     * @return оценка памяти, занятой счетчиками в памяти, в байтах
+     */
+    public long getMemoryUsage() {
+        long total = 0;
+        for (long partitionMemory : memory) {
+            total += partitionMemory;
+        }
+        return total;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Удаляет временные файлы и их каталог.
+     */
+    @Override
+    public void close() throws IOException {
+        deleteRuns();
+        Files.deleteIfExists(directory);
+    }
+
+    private void deleteRuns() throws IOException {
+        for (List<Path> partitionRuns : runs) {
+            for (Path run : partitionRuns) {
+                Files.deleteIfExists(run);
+            }
+            partitionRuns.clear();
+        }
+    }
+
+    @Override
+    public <K extends Comparable<K>, V extends Comparable<V>> List<Map.Entry<K, V>> sort(Map<K, V> map, Comparator<Map.Entry<K, V>> comparator) {
+        ArrayList<Map.Entry<K, V>> mapAsList = new ArrayList<>(map.entrySet());
+        mapAsList.sort(comparator);
+        return mapAsList;
+    }
+
+    @Override
+    public <K, V> void print(List<Map.Entry<K, V>> entryList, PrintStream ps) {
+        WordCountPrinter.print(entryList, ps);
+    }
+
+    /**
+     * Порядок {@link WordCounter#getWordCountsSorted()}: по убыванию количества, затем по алфавиту.
+     */
+    private static int compare(String word1, long count1, String word2, long count2) {
+        int compare = Long.compare(count2, count1);
+        return compare != 0 ? compare : word1.compareTo(word2);
+    }
+
+    /**
+     * Часть слов, упорядочиваемая в памяти.
+     */
+    private static final class Chunk {
+        private String[] words = new String[1024];
+        private long[] counts = new long[1024];
+        private int size;
+        private long memory;
+
+        void add(String word, long count) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            words[size] = word;
+            counts[size] = count;
+            size++;
+            memory += ENTRY_OVERHEAD + 2L * word.length();
+        }
+
+        void forEach(EntryConsumer consumer) throws IOException {
+            for (int i : order()) {
+                consumer.accept(words[i], counts[i]);
+            }
+        }
+
+        void write(Path path) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+                for (int i : order()) {
+                    byte[] bytes = WordCountSnapshot.encode(words[i]);
+                    out.writeLong(counts[i]);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+            }
+        }
+
+        private int[] order() {
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            IndexSort.sort(order, 0, size, (a, b) -> compare(words[a], counts[a], words[b], counts[b]));
+            return order;
+        }
+    }
+
+    /**
+     * Последовательное чтение части, записанной {@link Chunk#write(Path)}.
+     */
+    private static final class SortedRunReader implements Closeable {
+        private final DataInputStream in;
+        String word;
+        long count;
+
+        SortedRunReader(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE));
+        }
+
+        boolean next() throws IOException {
+            try {
+                count = in.readLong();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            word = WordCountSnapshot.decode(bytes, 0, bytes.length);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
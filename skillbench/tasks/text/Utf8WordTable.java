@@ -0,0 +1,103 @@
+package ru.skillbench.tasks.text;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Отображение "слово - количество вхождений", ключи которого - байты слова в UTF-8.<br/>
+ * Ключи хранятся подряд в одном массиве байтов и сравниваются побайтно, поэтому {@link String}
+ *  создается только при первой встрече слова.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+final class Utf8WordTable {
+    private byte[] arena = new byte[1 << 12];
+    private int arenaLength;
+    private int[] offsets = new int[64];
+    private int[] lengths = new int[64];
+    private int[] hashes = new int[64];
+    private long[] counts = new long[64];
+    private String[] words = new String[64];
+    private int size;
+
+    /**
+     * Увеличивает на 1 счетчик слова.
+     * @param bytes байты слова в UTF-8
+     * @param length число байтов
+     * @param hash хеш, вычисленный {@link #hash(int, byte)}
+     */
+    void add(byte[] bytes, int length, int hash) {
+        int mask = words.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        while (words[i] != null) {
+            if (hashes[i] == hash && lengths[i] == length && equals(offsets[i], bytes, length)) {
+                counts[i]++;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        if (arenaLength + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaLength + length));
+        }
+        System.arraycopy(bytes, 0, arena, arenaLength, length);
+        offsets[i] = arenaLength;
+        lengths[i] = length;
+        hashes[i] = hash;
+        counts[i] = 1;
+        words[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        arenaLength += length;
+        if (++size * 3 > words.length * 2) {
+            resize();
+        }
+    }
+
+    /**
+     * Прибавляет счетчики этой таблицы к счетчикам <code>target</code>.
+     */
+    void addTo(WordCountMap target) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != null) target.add(words[i], counts[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    static int hash(int hash, byte b) {
+        return 31 * hash + (b & 0xFF);
+    }
+
+    private boolean equals(int offset, byte[] bytes, int length) {
+        for (int j = 0; j < length; j++) {
+            if (arena[offset + j] != bytes[j]) return false;
+        }
+        return true;
+    }
+
+    private void resize() {
+        int[] oldOffsets = offsets;
+        int[] oldLengths = lengths;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        String[] oldWords = words;
+        int capacity = oldWords.length * 2;
+        offsets = new int[capacity];
+        lengths = new int[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+        words = new String[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldWords.length; j++) {
+            if (oldWords[j] == null) continue;
+            int i = WordCountMap.spread(oldHashes[j]) & mask;
+            while (words[i] != null) {
+                i = (i + 1) & mask;
+            }
+            offsets[i] = oldOffsets[j];
+            lengths[i] = oldLengths[j];
+            hashes[i] = oldHashes[j];
+            counts[i] = oldCounts[j];
+            words[i] = oldWords[j];
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.skillbench.tasks.text;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Разбор на слова текста в UTF-8 прямо по байтам, без декодирования в <code>char[]</code>;
+ *  правила те же, что у {@link WordTokenizer}.<br/>
+ * Пробельные символы, знаки препинания и угловые скобки - это ASCII, а байты многобайтовых
+ *  последовательностей UTF-8 никогда не совпадают с ASCII, поэтому границы слов и тегов находятся побайтно.
+ *  К нижнему регистру слова из ASCII и кириллицы приводятся прямо в байтах,
+ *  остальные - через {@link String#toLowerCase(Locale)}.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+final class Utf8WordTokenizer {
+    private final Utf8WordTable table;
+    private final Locale locale;
+    private final boolean fastLowerCase;
+
+    private byte[] word = new byte[64];
+    private int wordLength;
+    /** Все символы текущего слова - ASCII или кириллица (и уже приведены к нижнему регистру) */
+    private boolean wordFast = true;
+
+    Utf8WordTokenizer(Utf8WordTable table) {
+        this(table, Locale.getDefault());
+    }
+
+    Utf8WordTokenizer(Utf8WordTable table, Locale locale) {
+        this.table = table;
+        this.locale = locale;
+        String language = locale.getLanguage();
+        this.fastLowerCase = !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+    }
+
+    static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+
+    /**
+     * Подсчитывает слова в байтах [from, to) как в отдельном тексте: конец диапазона - конец текста.
+     */
+    void count(ByteBuffer bytes, int from, int to) {
+        int i = from;
+        while (i < to) {
+            byte b = bytes.get(i);
+            if (b == '<') {
+                int end = tagEnd(bytes, i, to);
+                if (end >= 0) {
+                    i = end;
+                } else {
+                    append(b);
+                    i++;
+                }
+            } else if (isWhitespace(b)) {
+                endWord();
+                i++;
+            } else if (b >= 0) {
+                switch (b) {
+                    case ',': case '.': case '?': case ':': case ';': case '!': case '"': case '(': case ')':
+                        break;
+                    default:
+                        append(fastLowerCase && b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b);
+                }
+                i++;
+            } else if (b == (byte) 0xE2 && i + 2 < to
+                    && bytes.get(i + 1) == (byte) 0x80 && bytes.get(i + 2) == (byte) 0x94) {
+                i += 3; // '—'
+            } else if (b >= (byte) 0xD0 && b <= (byte) 0xD3 && fastLowerCase && i + 1 < to
+                    && (bytes.get(i + 1) & 0xC0) == 0x80) {
+                // кириллица U+0400..U+04FF: строчная буква из того же блока тоже занимает 2 байта
+                int c = Character.toLowerCase(((b & 0x1F) << 6) | (bytes.get(i + 1) & 0x3F));
+                append((byte) (0xC0 | (c >> 6)));
+                append((byte) (0x80 | (c & 0x3F)));
+                i += 2;
+            } else {
+                wordFast = false;
+                append(b);
+                i++;
+            }
+        }
+        endWord();
+    }
+
+    /**
+     * Как регулярное выражение <code>&lt;\s*\S*\s*&gt;</code>, примененное в позиции <code>start</code>.
+     * @return позиция после тега или -1, если в этой позиции тега нет
+     */
+    private static int tagEnd(ByteBuffer bytes, int start, int to) {
+        int i = start + 1;
+        while (i < to && isWhitespace(bytes.get(i))) i++;
+        int lastGt = -1;
+        int body = i;
+        while (i < to && !isWhitespace(bytes.get(i))) {
+            if (bytes.get(i) == '>') lastGt = i;
+            i++;
+        }
+        if (i == body) return -1;
+        while (i < to && isWhitespace(bytes.get(i))) i++;
+        if (i < to && bytes.get(i) == '>') return i + 1;
+        return lastGt >= 0 ? lastGt + 1 : -1;
+    }
+
+    /**
+     * Байтовый аналог {@link WordTokenizer#findSplit(CharSequence, int, int)}: ищет в [from, limit)
+     *  пробельный байт, по которому текст можно разрезать и разобрать части независимо.<br/>
+     * Байты перед <code>from</code>, начиная с 0, должны быть доступны и начинаться с такой же границы
+     *  (или с начала текста).
+     * @param atEnd <code>limit</code> - конец текста; иначе за <code>limit</code> текст продолжается,
+     *   и граница, после которой до <code>limit</code> идут только пробелы, не выбирается
+     * @return позиция границы или -1, если подходящей границы нет
+     */
+    static int findSplit(ByteBuffer bytes, int from, int limit, boolean atEnd) {
+        int i = from;
+        while (i < limit) {
+            while (i < limit && !isWhitespace(bytes.get(i))) i++;
+            if (i >= limit) break;
+            int next = i;
+            while (next < limit && isWhitespace(bytes.get(next))) next++;
+            if (next == limit && !atEnd) break;
+            if ((next == limit || bytes.get(next) != '>') && !tagBefore(bytes, i)) {
+                return i;
+            }
+            i = next;
+        }
+        return -1;
+    }
+
+    private static boolean tagBefore(ByteBuffer bytes, int end) {
+        int i = end - 1;
+        while (i >= 0 && isWhitespace(bytes.get(i))) i--;
+        for (; i >= 0; i--) {
+            byte b = bytes.get(i);
+            if (b == '<') return true;
+            if (isWhitespace(b)) return false;
+        }
+        return false;
+    }
+
+    private void append(byte b) {
+        if (wordLength == word.length) {
+            word = Arrays.copyOf(word, wordLength * 2);
+        }
+        word[wordLength++] = b;
+    }
+
+    private void endWord() {
+        if (wordLength == 0) return;
+        if (!wordFast || !fastLowerCase) {
+            // редкий случай: полные правила String.toLowerCase
+            byte[] lower = new String(word, 0, wordLength, StandardCharsets.UTF_8)
+                    .toLowerCase(locale).getBytes(StandardCharsets.UTF_8);
+            if (lower.length > word.length) {
+                word = new byte[lower.length * 2];
+            }
+            System.arraycopy(lower, 0, word, 0, lower.length);
+            wordLength = lower.length;
+        }
+        int hash = 0;
+        for (int i = 0; i < wordLength; i++) {
+            hash = Utf8WordTable.hash(hash, word[i]);
+        }
+        table.add(word, wordLength, hash);
+        wordLength = 0;
+        wordFast = true;
+    }
+}
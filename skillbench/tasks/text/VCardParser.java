@@ -0,0 +1,192 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Разбор визитной карточки в формате {@link ContactCard#getInstance(java.util.Scanner)} без регулярных выражений.<br/>
+ * Строки обрабатываются по одной ({@link #line(CharSequence, int, int)}): имя поля - символы до первого ';' или ':'
+ *  (без учета регистра), значение - символы после первого ':'. Строки разделяются так же,
+ *  как в {@link java.util.Scanner#nextLine()}: "\r\n", '\n', '\r', '\u2028', '\u2029' или '\u0085'.<br/>
+ * Исключения те же, что у прежней реализации на {@link java.util.Scanner}: {@link NoSuchElementException},
+ *  если первая строка не BEGIN:VCARD, последняя не END:VCARD, нет FN или ORG или значение GENDER не F и не M;
+ *  {@link InputMismatchException}, если в строке нет ':', дата рождения не в формате DD-MM-YYYY
+ *  (см. {@link #parseBirthday(CharSequence, int, int)}) или номер телефона не из 10 цифр.<br/>
+ * В отличие от прежней реализации, поле определяется по имени целиком, а не по вхождению подстроки
+ *  ("X-BDAY:..." или "NOTE:FN" не принимаются за BDAY или FN), а значение берется после ':' для всех полей.<br/>
+ * Экземпляр разбирает одну карточку и не потокобезопасен.
+ */
+final class VCardParser {
+    private static final int BUFFER_SIZE = 1 << 12;
+    /** Наибольший год {@link java.util.GregorianCalendar} */
+    static final int MAX_YEAR = 292278994;
+
+    private String fullName;
+    private String organization;
+    private boolean woman;
+    private LocalDate birthday;
+    private final HashMap<String, String> phones = new HashMap<>();
+    private boolean started;
+    private boolean ended;
+
+    /**
+     * Разбирает карточку из <code>data</code> целиком.
+     */
+    static ContactCardImpl parse(CharSequence data) {
+        return parse(data, 0, data.length());
+    }
+
+    /**
+     * Разбирает карточку из символов <code>data</code> в диапазоне [from, to).
+     */
+    static ContactCardImpl parse(CharSequence data, int from, int to) {
+        VCardParser parser = new VCardParser();
+        int i = from;
+        while (i < to) {
+            int end = i;
+            while (end < to && !isLineSeparator(data.charAt(end))) end++;
+            parser.line(data, i, end);
+            if (end < to && data.charAt(end) == '\r' && end + 1 < to && data.charAt(end + 1) == '\n') end++;
+            i = end + 1;
+        }
+        return parser.finish();
+    }
+
+    /**
+     * Читает <code>reader</code> до конца (поток не закрывается) и разбирает карточку.
+     * @throws IOException при ошибке чтения
+     */
+    static ContactCardImpl parse(Reader reader) throws IOException {
+        StringBuilder data = new StringBuilder();
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            data.append(buffer, 0, n);
+        }
+        return parse(data);
+    }
+
+    static boolean isLineSeparator(char c) {
+        return c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029' || c == '\u0085';
+    }
+
+    /**
+     * Обрабатывает очередную строку (без разделителя строк) - символы <code>line</code> в диапазоне [from, to).
+     */
+    void line(CharSequence line, int from, int to) {
+        if (!started) {
+            if (!equals(line, from, to, "BEGIN:VCARD")) throw new NoSuchElementException();
+            started = true;
+            return;
+        }
+        ended = equals(line, from, to, "END:VCARD");
+        int colon = indexOf(line, from, to, ':');
+        if (colon < 0) throw new InputMismatchException();
+        int nameEnd = indexOf(line, from, colon, ';');
+        if (nameEnd < 0) nameEnd = colon;
+        int valueFrom = colon + 1;
+
+        if (isName(line, from, nameEnd, "FN")) {
+            fullName = line.subSequence(valueFrom, to).toString();
+        } else if (isName(line, from, nameEnd, "ORG")) {
+            organization = line.subSequence(valueFrom, to).toString();
+        } else if (isName(line, from, nameEnd, "GENDER")) {
+            if (equals(line, valueFrom, to, "M")) woman = false;
+            else if (equals(line, valueFrom, to, "F")) woman = true;
+            else throw new NoSuchElementException();
+        } else if (isName(line, from, nameEnd, "BDAY")) {
+            birthday = parseBirthday(line, valueFrom, to);
+        } else if (isName(line, from, nameEnd, "TEL")) {
+            if (to - valueFrom != 10) throw new InputMismatchException();
+            for (int i = valueFrom; i < to; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') throw new InputMismatchException();
+            }
+            // тип - все между '=' и ':' (TEL;TYPE=WORK,VOICE:... - "WORK,VOICE"), а без '=' - все до ':'
+            int equalsSign = indexOf(line, from, colon, '=');
+            int typeFrom = equalsSign < 0 ? from : equalsSign + 1;
+            phones.put(line.subSequence(typeFrom, colon).toString(), line.subSequence(valueFrom, to).toString());
+        }
+    }
+
+    /**
+     * Разбирает дату рождения вида DD-MM-YYYY из символов <code>text</code> в диапазоне [from, to) так же,
+     *  как прежняя реализация на нестрогом ({@link java.text.DateFormat#setLenient(boolean) setLenient(false)})
+     *  {@link java.text.SimpleDateFormat}("dd-MM-yyyy"): число цифр в поле любое ("1-4-1940", "01-04-40" - 40 год),
+     *  перед числом допускаются пробелы и табуляции, текст после года не учитывается ("01-04-1940 " - 1940 год).
+     *  Год должен быть от 1 до 292278994. Как и там, до 15 октября 1582 года дата юлианская ("29-02-1500" допустима),
+     *  а несуществующие даты (в том числе 5-14 октября 1582 года) не допускаются; см. {@link BirthdayCalendar}.
+     * @throws InputMismatchException если значение не такого вида
+     */
+    static LocalDate parseBirthday(CharSequence text, int from, int to) {
+        int[] fields = new int[3];
+        int i = from;
+        for (int field = 0; field < fields.length; field++) {
+            if (field > 0) {
+                if (i == to || text.charAt(i) != '-') throw new InputMismatchException();
+                i++;
+            }
+            while (i < to && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) i++;
+            int start = i;
+            long value = 0;
+            for (char c; i < to && (c = text.charAt(i)) >= '0' && c <= '9'; i++) {
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE) throw new InputMismatchException();
+            }
+            if (i == start) throw new InputMismatchException();
+            fields[field] = (int) value;
+        }
+        if (fields[2] < 1 || fields[2] > MAX_YEAR) throw new InputMismatchException();
+        LocalDate date;
+        try {
+            date = BirthdayCalendar.of(fields[2], fields[1], fields[0]);
+        } catch (DateTimeException e) {
+            InputMismatchException mismatchException = new InputMismatchException();
+            mismatchException.initCause(e);
+            throw mismatchException;
+        }
+        return date;
+    }
+
+    /**
+     * Проверяет, что карточка закончилась строкой END:VCARD и содержит обязательные поля.
+     */
+    ContactCardImpl finish() {
+        if (!started) throw new NoSuchElementException();
+        if (!ended || fullName == null || organization == null) throw new NoSuchElementException();
+        return new ContactCardImpl(fullName, organization, woman, birthday, phones);
+    }
+
+    private static int indexOf(CharSequence text, int from, int to, char c) {
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static boolean equals(CharSequence text, int from, int to, String s) {
+        if (to - from != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (text.charAt(from + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Сравнивает имя поля без учета регистра (<code>name</code> - в верхнем регистре, латиница).
+     */
+    private static boolean isName(CharSequence text, int from, int to, String name) {
+        if (to - from != name.length()) return false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = text.charAt(from + i);
+            if (c >= 'a' && c <= 'z') c -= 'a' - 'A';
+            if (c != name.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,352 @@
+package ru.skillbench.tasks.text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Чтение источника с множеством визитных карточек подряд (в формате {@link ContactCard#getInstance(java.util.Scanner)})
+ *  в виде ленивого потока {@link Stream}.<br/>
+ * Источник читается один раз: границы карточек (строки BEGIN:VCARD и END:VCARD) ищутся без разбора полей,
+ *  карточки собираются в блоки примерно по {@link #CHUNK_LENGTH} символов, и блоки разбираются {@link VCardParser}
+ *  в заданном {@link Executor} параллельно с чтением. Вперед читается не больше {@link #setReadAhead(int)} блоков,
+ *  поэтому в памяти находится лишь небольшая часть источника.<br/>
+ * Карточки выдаются в порядке следования в источнике. Неверная карточка пропускается и передается
+ *  {@link ErrorHandler} с номером ее первой строки. Непустые строки вне карточек тоже считаются ошибкой
+ *  (одной на каждый их непрерывный участок); строка BEGIN:VCARD внутри карточки начинает новую карточку,
+ *  а прерванная карточка считается неверной, так как не заканчивается строкой END:VCARD.<br/>
+ * Экземпляр читает источник один раз и не потокобезопасен.
+ */
+public class VCardReader implements Closeable {
+    /**
+     * Примерный размер блока карточек, разбираемого одной задачей, в символах
+     */
+    static final int CHUNK_LENGTH = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 14;
+    private static final String BEGIN = "BEGIN:VCARD";
+    private static final String END = "END:VCARD";
+
+    /**
+     * Получатель сведений о неверных карточках; вызывается в потоке, читающем {@link #cards()},
+     *  в порядке следования карточек в источнике.
+     */
+    public interface ErrorHandler {
+        /**
+         * @param line номер первой строки неверной карточки или участка строк вне карточек (начиная с 1)
+         * @param cause исключение, которое выбросил бы {@link ContactCard#getInstance(String)}
+         *   для этой карточки
+         */
+        void error(long line, NoSuchElementException cause);
+    }
+
+    private final Reader reader;
+    private Executor executor = ForkJoinPool.commonPool();
+    private int readAhead = ForkJoinPool.getCommonPoolParallelism() * 2;
+    private ErrorHandler errorHandler = (line, cause) -> { };
+    private boolean started;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private boolean eof;
+    /** Блоки, отданные на разбор, в порядке следования */
+    private final ArrayDeque<CompletableFuture<Chunk>> queue = new ArrayDeque<>();
+    /** Заполняемый блок */
+    private Chunk chunk = new Chunk();
+    /** Начало текущей строки в тексте заполняемого блока */
+    private int lineStart;
+    private long lineNumber = 1;
+    /** Предыдущий символ был '\r' в конце буфера: следующий '\n' относится к тому же разделителю строк */
+    private boolean afterCr;
+    /** Начало текущей карточки в тексте заполняемого блока или -1 вне карточки */
+    private int cardStart = -1;
+    private long cardLine;
+    /** Текущий участок строк вне карточек уже учтен как ошибка */
+    private boolean junk;
+
+    /** Выдаваемый блок и номер следующей карточки в нем */
+    private Chunk current;
+    private int position;
+
+    /**
+     * @param reader источник карточек; закрывается методом {@link #close()} или при закрытии потока {@link #cards()}
+     */
+    public VCardReader(Reader reader) {
+        this.reader = Objects.requireNonNull(reader);
+    }
+
+    /**
+     * Читает карточки из файла в кодировке UTF-8 (неверные последовательности байтов заменяются символом U+FFFD).
+     * @throws IOException если файл не удалось открыть
+     */
+    public VCardReader(Path path) throws IOException {
+        this(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Задает, где разбирать блоки карточек; по умолчанию - {@link ForkJoinPool#commonPool()}.
+     *  Для однопоточного разбора подойдет <code>Runnable::run</code>.
+     * @throws IllegalStateException если чтение уже начато
+     */
+    public void setExecutor(Executor executor) {
+        checkNotStarted();
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Задает, сколько блоков карточек может разбираться одновременно с выдачей уже разобранных;
+     *  по умолчанию - удвоенный параллелизм {@link ForkJoinPool#commonPool()}.
+     * @throws IllegalArgumentException если <code>readAhead</code> меньше 1
+     * @throws IllegalStateException если чтение уже начато
+     */
+    public void setReadAhead(int readAhead) {
+        if (readAhead < 1) throw new IllegalArgumentException("readAhead < 1: " + readAhead);
+        checkNotStarted();
+        this.readAhead = readAhead;
+    }
+
+    public int getReadAhead() {
+        return readAhead;
+    }
+
+    /**
+     * Задает получателя сведений о неверных карточках; по умолчанию они пропускаются молча.
+     * @throws IllegalStateException если чтение уже начато
+     */
+    public void setErrorHandler(ErrorHandler errorHandler) {
+        checkNotStarted();
+        this.errorHandler = Objects.requireNonNull(errorHandler);
+    }
+
+    private void checkNotStarted() {
+        if (started) throw new IllegalStateException("Reading already started");
+    }
+
+    /**
+     * Возвращает ленивый упорядоченный поток карточек источника. Источник читается по мере чтения потока;
+     *  ошибка чтения выбрасывается как {@link UncheckedIOException}. Закрытие потока закрывает источник.
+     * @throws IllegalStateException если метод уже вызывался
+     */
+    public Stream<ContactCard> cards() {
+        checkNotStarted();
+        started = true;
+        Spliterator<ContactCard> spliterator = new Spliterators.AbstractSpliterator<ContactCard>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super ContactCard> action) {
+                return next(action);
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Прекращает разбор (уже начатые задачи доработают, но их результат не нужен) и закрывает источник.
+     */
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        for (CompletableFuture<Chunk> future : queue) {
+            future.cancel(false);
+        }
+        queue.clear();
+        current = null;
+        reader.close();
+    }
+
+    private boolean next(Consumer<? super ContactCard> action) {
+        while (true) {
+            if (current != null && position < current.size) {
+                int i = position++;
+                if (current.errors[i] != null) {
+                    errorHandler.error(current.lines[i], current.errors[i]);
+                } else {
+                    action.accept(current.cards[i]);
+                    return true;
+                }
+                continue;
+            }
+            current = null;
+            try {
+                fill();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            CompletableFuture<Chunk> future = queue.poll();
+            if (future == null) return false;
+            current = join(future);
+            position = 0;
+        }
+    }
+
+    private static Chunk join(CompletableFuture<Chunk> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Читает источник, пока на разборе меньше {@link #readAhead} блоков.
+     */
+    private void fill() throws IOException {
+        while (!eof && queue.size() < readAhead) {
+            int n = reader.read(buffer);
+            if (n < 0) {
+                eof = true;
+                if (chunk.text.length() > lineStart) endLine();
+                if (cardStart >= 0) {
+                    chunk.add(cardStart, lineStart - 1, cardLine, null);
+                    cardStart = -1;
+                }
+                if (chunk.size > 0) submit();
+            } else {
+                scan(buffer, n);
+            }
+        }
+    }
+
+    /**
+     * Переносит символы в текст блока, заменяя разделители строк на '\n', и обрабатывает законченные строки.
+     */
+    private void scan(char[] chars, int length) {
+        int i = 0;
+        if (afterCr && length > 0 && chars[0] == '\n') i++;
+        afterCr = false;
+        while (i < length) {
+            int end = i;
+            while (end < length && !VCardParser.isLineSeparator(chars[end])) end++;
+            chunk.text.append(chars, i, end - i);
+            if (end == length) break;
+            endLine();
+            if (chars[end] == '\r') {
+                if (end + 1 == length) afterCr = true;
+                else if (chars[end + 1] == '\n') end++;
+            }
+            i = end + 1;
+        }
+    }
+
+    /**
+     * Обрабатывает строку [lineStart, text.length()) текста блока.
+     */
+    private void endLine() {
+        StringBuilder text = chunk.text;
+        int length = text.length();
+        if (cardStart < 0) {
+            if (equals(text, lineStart, length, BEGIN)) {
+                cardStart = lineStart;
+                cardLine = lineNumber;
+                junk = false;
+                nextLine();
+            } else {
+                if (length > lineStart && !junk) {
+                    chunk.add(-1, -1, lineNumber, new NoSuchElementException("Expected " + BEGIN));
+                    junk = true;
+                }
+                text.setLength(lineStart);
+            }
+        } else if (equals(text, lineStart, length, END)) {
+            chunk.add(cardStart, length, cardLine, null);
+            cardStart = -1;
+            if (length >= CHUNK_LENGTH) submit();
+            else nextLine();
+        } else if (equals(text, lineStart, length, BEGIN)) {
+            chunk.add(cardStart, lineStart - 1, cardLine, null);
+            cardStart = lineStart;
+            cardLine = lineNumber;
+            nextLine();
+        } else {
+            nextLine();
+        }
+        lineNumber++;
+    }
+
+    private void nextLine() {
+        chunk.text.append('\n');
+        lineStart = chunk.text.length();
+    }
+
+    private void submit() {
+        queue.add(CompletableFuture.supplyAsync(chunk::parse, executor));
+        chunk = new Chunk();
+        lineStart = 0;
+    }
+
+    private static boolean equals(CharSequence text, int from, int to, String s) {
+        if (to - from != s.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (text.charAt(from + i) != s.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Блок карточек: общий текст и границы карточек в нем; после {@link #parse()} - карточки или ошибки разбора.
+     */
+    private static final class Chunk {
+        final StringBuilder text = new StringBuilder(CHUNK_LENGTH);
+        /** Начало и конец i-й карточки - bounds[2 * i] и bounds[2 * i + 1] */
+        int[] bounds = new int[128];
+        long[] lines = new long[64];
+        NoSuchElementException[] errors = new NoSuchElementException[64];
+        ContactCard[] cards;
+        int size;
+
+        void add(int from, int to, long line, NoSuchElementException error) {
+            if (size == lines.length) {
+                bounds = Arrays.copyOf(bounds, size * 4);
+                lines = Arrays.copyOf(lines, size * 2);
+                errors = Arrays.copyOf(errors, size * 2);
+            }
+            bounds[2 * size] = from;
+            bounds[2 * size + 1] = to;
+            lines[size] = line;
+            errors[size] = error;
+            size++;
+        }
+
+        Chunk parse() {
+            cards = new ContactCard[size];
+            for (int i = 0; i < size; i++) {
+                if (errors[i] != null) continue;
+                try {
+                    cards[i] = VCardParser.parse(text, bounds[2 * i], bounds[2 * i + 1]);
+                } catch (NoSuchElementException e) {
+                    errors[i] = e;
+                }
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package ru.skillbench.tasks.text;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Запись визитных карточек в формате {@link ContactCard#getInstance(java.util.Scanner)}
+ *  в {@link Writer} или в {@link WritableByteChannel} (в кодировке UTF-8).<br/>
+ * Карточка записывается строками BEGIN:VCARD, FN, ORG, GENDER:F (только для женщин), BDAY (если есть),
+ *  TEL;TYPE=тип для каждого телефона и END:VCARD, разделенными CRLF, поэтому {@link ContactCard#getInstance(String)}
+ *  и {@link VCardReader} восстанавливают все значения карточки без потерь (о телефонах см. {@link #write(ContactCard)}).
+ *  Символы собираются в одном буфере экземпляра и передаются дальше только при его заполнении и в {@link #flush()};
+ *  дата рождения пишется прямо в буфер в виде DD-MM-YYYY (год - не менее 4 цифр), который принимает {@link VCardParser#parseBirthday(CharSequence, int, int)}.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class VCardWriter implements Closeable, Flushable {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final String CRLF = "\r\n";
+
+    private final Writer writer;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer bytes;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    /** Число символов в буфере */
+    private int length;
+    private final char[] phoneDigits = new char[10];
+
+    /**
+     * @param writer приемник текста; закрывается методом {@link #close()}
+     */
+    public VCardWriter(Writer writer) {
+        this.writer = Objects.requireNonNull(writer);
+        this.channel = null;
+        this.encoder = null;
+        this.bytes = null;
+    }
+
+    /**
+     * @param channel приемник байтов текста в UTF-8 (одиночные суррогатные символы заменяются на '?');
+     *   закрывается методом {@link #close()}
+     */
+    public VCardWriter(WritableByteChannel channel) {
+        this.writer = null;
+        this.channel = Objects.requireNonNull(channel);
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 3);
+    }
+
+    /**
+     * Записывает карточки потока по порядку.
+     * @return число записанных карточек
+     * @throws UncheckedIOException при ошибке записи
+     * @throws IllegalArgumentException как в {@link #write(ContactCard)}; карточки до нее уже записаны
+     */
+    public long write(Stream<? extends ContactCard> cards) {
+        long[] count = new long[1];
+        cards.forEachOrdered(card -> {
+            try {
+                write(card);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Записывает одну карточку. Телефоны записываются только у карточек {@link ContactCardImpl}
+     *  и представлений {@link ContactCardStore}: у других реализаций {@link ContactCard} их типы нельзя перечислить.
+     * @throws IOException при ошибке записи
+     * @throws NullPointerException если у карточки нет имени или организации
+     * @throws IllegalArgumentException если значение нельзя прочитать обратно: имя, организация
+     *   или тип телефона содержит разделитель строк, тип телефона содержит ':',
+     *   номер телефона не из 10 цифр или год рождения (в календаре поля BDAY, см. {@link BirthdayCalendar})
+     *   не от 1 до 292278994; в этом случае ничего не записывается
+     */
+    public void write(ContactCard card) throws IOException {
+        String fullName = Objects.requireNonNull(card.getFullName(), "fullName");
+        String organization = Objects.requireNonNull(card.getOrganization(), "organization");
+        LocalDate birthday = ContactCardImpl.birthday(card);
+        // год, месяц и день в календаре BDAY (до 15.10.1582 - юлианском)
+        int[] date = birthday == null ? null : BirthdayCalendar.fields(birthday);
+        Map<String, String> cardPhones = ContactCardImpl.phones(card);
+        checkValue(fullName);
+        checkValue(organization);
+        if (date != null && (date[0] < 1 || date[0] > VCardParser.MAX_YEAR)) {
+            throw new IllegalArgumentException("birthday: " + birthday);
+        }
+        long[] phones = new long[cardPhones.size()];
+        int phone = 0;
+        for (Map.Entry<String, String> entry : cardPhones.entrySet()) {
+            String type = entry.getKey();
+            checkValue(type);
+            if (type.indexOf(':') >= 0) throw new IllegalArgumentException("phone type: " + type);
+            phones[phone++] = PhoneNumbers.parse(entry.getValue());
+        }
+
+        append("BEGIN:VCARD\r\nFN:").append(fullName).append("\r\nORG:").append(organization).append(CRLF);
+        if (card.isWoman()) append("GENDER:F\r\n");
+        if (date != null) {
+            append("BDAY:");
+            appendDigits(date[2], 2).append('-');
+            appendDigits(date[1], 2).append('-');
+            appendDigits(date[0], Math.max(4, digitCount(date[0]))).append(CRLF);
+        }
+        phone = 0;
+        for (String type : cardPhones.keySet()) {
+            append("TEL;TYPE=").append(type).append(':');
+            long number = phones[phone++];
+            for (int i = phoneDigits.length - 1; i >= 0; i--, number /= 10) {
+                phoneDigits[i] = (char) ('0' + number % 10);
+            }
+            append(phoneDigits).append(CRLF);
+        }
+        append("END:VCARD\r\n");
+    }
+
+    private static int digitCount(int value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static void checkValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (VCardParser.isLineSeparator(value.charAt(i))) throw new IllegalArgumentException("value: " + value);
+        }
+    }
+
+    private VCardWriter append(String s) throws IOException {
+        int from = 0;
+        while (from < s.length()) {
+            if (length == buffer.length) drain();
+            int count = Math.min(s.length() - from, buffer.length - length);
+            s.getChars(from, from + count, buffer, length);
+            length += count;
+            from += count;
+        }
+        return this;
+    }
+
+    private VCardWriter append(char[] chars) throws IOException {
+        int from = 0;
+        while (from < chars.length) {
+            if (length == buffer.length) drain();
+            int count = Math.min(chars.length - from, buffer.length - length);
+            System.arraycopy(chars, from, buffer, length, count);
+            length += count;
+            from += count;
+        }
+        return this;
+    }
+
+    private VCardWriter append(char c) throws IOException {
+        if (length == buffer.length) drain();
+        buffer[length++] = c;
+        return this;
+    }
+
+    private VCardWriter appendDigits(int value, int digits) throws IOException {
+        if (length > buffer.length - digits) drain();
+        for (int i = length + digits - 1; i >= length; i--, value /= 10) {
+            buffer[i] = (char) ('0' + value % 10);
+        }
+        length += digits;
+        return this;
+    }
+
+    /**
+     * Освобождает буфер: передает символы в writer или кодирует в канал все, кроме, возможно,
+     *  незаконченной суррогатной пары в конце.
+     */
+    private void drain() throws IOException {
+        if (writer != null) {
+            writer.write(buffer, 0, length);
+            length = 0;
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(buffer, 0, length);
+        while (true) {
+            CoderResult result = encoder.encode(chars, bytes, false);
+            writeBytes();
+            if (result.isUnderflow()) break;
+        }
+        int rest = chars.remaining();
+        System.arraycopy(buffer, chars.position(), buffer, 0, rest);
+        length = rest;
+    }
+
+    private void writeBytes() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    /**
+     * Передает накопленные символы в приемник и сбрасывает его ({@link Writer#flush()};
+     *  у канала сбрасывать нечего).
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (writer != null) writer.flush();
+    }
+
+    /**
+     * Записывает накопленные символы и закрывает приемник.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writer != null) {
+                drain();
+            } else {
+                drain();
+                CharBuffer chars = CharBuffer.wrap(buffer, 0, length);
+                while (encoder.encode(chars, bytes, true).isOverflow()) {
+                    writeBytes();
+                }
+                while (encoder.flush(bytes).isOverflow()) {
+                    writeBytes();
+                }
+                writeBytes();
+                length = 0;
+            }
+        } finally {
+            if (writer != null) writer.close();
+            else channel.close();
+        }
+    }
+}
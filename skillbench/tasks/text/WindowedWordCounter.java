@@ -0,0 +1,168 @@
+package ru.skillbench.tasks.text;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Подсчет слов в текстах за последний промежуток времени (скользящее окно) с постоянно упорядоченным списком слов.<br/>
+ * Окно длиной <code>windowLength</code> делится на <code>bucketCount</code> интервалов одинаковой длины;
+ *  слова текста учитываются в интервале, в который попадает его отметка времени, а интервал,
+ *  вышедший из окна, целиком вычитается из общих счетчиков. Поэтому граница окна сдвигается шагами
+ *  по одному интервалу: в окне учтены интервалы, заканчивающиеся интервалом последней отметки времени.<br/>
+ * Слова хранятся в {@link TreeSet} в порядке {@link WordCounter#getWordCountsSorted()}
+ *  (по убыванию количества, затем по алфавиту), который поддерживается при каждом изменении счетчика,
+ *  поэтому <code>k</code> первых слов читаются за O(k).<br/>
+ * Единица измерения времени любая (например, миллисекунды), но одна и та же для всех параметров.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class WindowedWordCounter {
+    private final long bucketLength;
+    /** Счетчики интервалов в кольцевом буфере; интервал с номером i лежит в ячейке i % bucketCount */
+    private final WordCountMap[] buckets;
+    /** Номер интервала (отметка времени / bucketLength) в каждой ячейке */
+    private final long[] bucketIds;
+    /** Номер самого нового интервала */
+    private long head = Long.MIN_VALUE;
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final TreeSet<Node> ranking = new TreeSet<>(WindowedWordCounter::compare);
+
+    /**
+     * @param windowLength длина окна
+     * @param bucketCount на сколько интервалов делится окно; чем больше, тем точнее граница окна
+     * @throws IllegalArgumentException если <code>bucketCount</code> меньше 1
+     *   или <code>windowLength</code> меньше <code>bucketCount</code>
+     */
+    public WindowedWordCounter(long windowLength, int bucketCount) {
+        if (bucketCount < 1) throw new IllegalArgumentException("bucketCount < 1: " + bucketCount);
+        if (windowLength < bucketCount) {
+            throw new IllegalArgumentException("windowLength < bucketCount: " + windowLength);
+        }
+        this.bucketLength = windowLength / bucketCount;
+        this.buckets = new WordCountMap[bucketCount];
+        this.bucketIds = new long[bucketCount];
+    }
+
+    /**
+     * Учитывает слова текста с отметкой времени <code>timestamp</code>, предварительно сдвинув окно
+     *  (см. {@link #advance(long)}). Текст с отметкой времени, которая уже вышла из окна, не учитывается.
+     * @param timestamp отметка времени текста
+     * @param text текст
+     * @return true, если текст учтен
+     */
+    public boolean add(long timestamp, CharSequence text) {
+        Objects.requireNonNull(text);
+        advance(timestamp);
+        long id = Math.floorDiv(timestamp, bucketLength);
+        if (id <= head - buckets.length) return false;
+
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        tokenizer.feed(text, 0, text.length());
+        tokenizer.finish();
+
+        int slot = (int) Math.floorMod(id, (long) buckets.length);
+        WordCountMap bucket = buckets[slot];
+        if (bucket == null) {
+            buckets[slot] = bucket = words;
+            bucketIds[slot] = id;
+        } else {
+            bucket.addAll(words);
+        }
+        words.forEach(this::update);
+        return true;
+    }
+
+    /**
+     * Сдвигает окно так, чтобы оно заканчивалось интервалом, содержащим <code>now</code>,
+     *  и вычитает слова вышедших из окна интервалов. Окно не сдвигается назад.
+     * @param now текущая отметка времени
+     */
+    public void advance(long now) {
+        long id = Math.floorDiv(now, bucketLength);
+        if (id <= head) return;
+        long oldest = id - buckets.length;
+        for (int slot = 0; slot < buckets.length; slot++) {
+            WordCountMap bucket = buckets[slot];
+            if (bucket != null && bucketIds[slot] <= oldest) {
+                bucket.forEach((word, count) -> update(word, -count));
+                buckets[slot] = null;
+            }
+        }
+        head = id;
+    }
+
+    /**
+     * @return количество вхождений слова в текущем окне
+     */
+    public long getCount(String word) {
+        Node node = nodes.get(word);
+        return node == null ? 0 : node.count;
+    }
+
+    /**
+     * @return число различных слов в текущем окне
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Возвращает <code>k</code> самых частых слов текущего окна за O(k)
+     *  в порядке {@link WordCounter#getWordCountsSorted()}.
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     */
+    public List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        List<Map.Entry<String, Long>> result = new ArrayList<>(Math.min(k, ranking.size()));
+        Iterator<Node> iterator = ranking.iterator();
+        while (result.size() < k && iterator.hasNext()) {
+            Node node = iterator.next();
+            result.add(new AbstractMap.SimpleImmutableEntry<>(node.word, node.count));
+        }
+        return result;
+    }
+
+    /**
+     * @return все слова текущего окна в порядке {@link WordCounter#getWordCountsSorted()}
+     */
+    public List<Map.Entry<String, Long>> getWordCountsSorted() {
+        return getTopWords(ranking.size());
+    }
+
+    private void update(String word, long delta) {
+        Node node = nodes.get(word);
+        if (node == null) {
+            node = new Node(word);
+            nodes.put(word, node);
+        } else {
+            ranking.remove(node);
+        }
+        node.count += delta;
+        if (node.count > 0) {
+            ranking.add(node);
+        } else {
+            nodes.remove(word);
+        }
+    }
+
+    private static int compare(Node a, Node b) {
+        int compare = Long.compare(b.count, a.count);
+        return compare != 0 ? compare : a.word.compareTo(b.word);
+    }
+
+    private static final class Node {
+        final String word;
+        long count;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
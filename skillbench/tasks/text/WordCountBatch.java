@@ -0,0 +1,177 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Подсчет слов во многих документах по общему {@link WordDictionary}.<br/>
+ * Для каждого документа возвращаются {@link DocumentWordCounts} - номера слов и количества,
+ *  а по всем документам накапливаются общие количества по номерам слов.
+ *  Счетчики документа собираются в плотном массиве по номерам слов, который переиспользуется
+ *  для следующих документов, поэтому на документ создаются только два массива результата.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class WordCountBatch {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final WordDictionary dictionary;
+    private final WordTokenizer tokenizer = new WordTokenizer(this::word);
+
+    /** Счетчики текущего документа по номерам слов; вне разбора документа все равны 0 */
+    private long[] scratch = new long[64];
+    /** Номера слов, встреченных в текущем документе */
+    private int[] touched = new int[64];
+    private int touchedSize;
+
+    /** Общие количества по номерам слов */
+    private long[] global = new long[64];
+    private long documents;
+
+    public WordCountBatch() {
+        this(new WordDictionary());
+    }
+
+    /**
+     * @param dictionary словарь, который можно разделять с другими объектами (но не с другими потоками)
+     */
+    public WordCountBatch(WordDictionary dictionary) {
+        this.dictionary = Objects.requireNonNull(dictionary);
+    }
+
+    public WordDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Подсчитывает слова документа по правилам {@link WordCounterImpl} и прибавляет их к общим количествам.
+     * @param document текст документа
+     * @return счетчики документа
+     */
+    public DocumentWordCounts add(CharSequence document) {
+        tokenizer.feed(document, 0, document.length());
+        tokenizer.finish();
+        return endDocument();
+    }
+
+    /**
+     * Как {@link #add(CharSequence)}, но текст документа читается из <code>reader</code> до конца
+     *  (поток не закрывается).
+     * @throws IOException при ошибке чтения (тогда слова документа не учитываются)
+     */
+    public DocumentWordCounts add(Reader reader) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        try {
+            int n;
+            while ((n = reader.read(buffer)) >= 0) {
+                tokenizer.feed(buffer, 0, n);
+            }
+            tokenizer.finish();
+        } catch (IOException e) {
+            tokenizer.finish();
+            discardDocument();
+            throw e;
+        }
+        return endDocument();
+    }
+
+    /**
+     * @return счетчики каждого из документов в том же порядке
+     */
+    public List<DocumentWordCounts> addAll(Collection<? extends CharSequence> documents) {
+        List<DocumentWordCounts> result = new ArrayList<>(documents.size());
+        for (CharSequence document : documents) {
+            result.add(add(document));
+        }
+        return result;
+    }
+
+    /**
+     * @return число учтенных документов
+     */
+    public long getDocumentCount() {
+        return documents;
+    }
+
+    /**
+     * @return общее количество вхождений слова с номером <code>id</code> во все документы
+     */
+    public long getGlobalCount(int id) {
+        return id >= 0 && id < global.length ? global[id] : 0;
+    }
+
+    /**
+     * @return общие количества по номерам слов: элемент с индексом id - для слова с номером id;
+     *   длина массива равна {@link WordDictionary#size()}
+     */
+    public long[] getGlobalCounts() {
+        return Arrays.copyOf(global, dictionary.size());
+    }
+
+    /**
+     * Переводит общие количества в слова, как в {@link WordCounter#getWordCounts()}.
+     *  Слова словаря, которые не встречались в документах этого объекта, не включаются.
+     */
+    public Map<String, Long> getWordCounts() {
+        return globalCounts().asMap();
+    }
+
+    /**
+     * Переводит общие количества в слова и упорядочивает их, как в {@link WordCounter#getWordCountsSorted()}.
+     */
+    public List<Map.Entry<String, Long>> getWordCountsSorted() {
+        return globalCounts().sorted();
+    }
+
+    private WordCountMap globalCounts() {
+        int size = Math.min(global.length, dictionary.size());
+        WordCountMap words = new WordCountMap(size);
+        for (int id = 0; id < size; id++) {
+            if (global[id] != 0) words.add(dictionary.word(id), global[id]);
+        }
+        return words;
+    }
+
+    private void word(char[] chars, int length, int hash) {
+        int id = dictionary.add(chars, length, hash);
+        if (id >= scratch.length) {
+            scratch = Arrays.copyOf(scratch, Math.max(id + 1, scratch.length * 2));
+        }
+        if (scratch[id]++ == 0) {
+            if (touchedSize == touched.length) {
+                touched = Arrays.copyOf(touched, touchedSize * 2);
+            }
+            touched[touchedSize++] = id;
+        }
+    }
+
+    private DocumentWordCounts endDocument() {
+        Arrays.sort(touched, 0, touchedSize);
+        int[] ids = Arrays.copyOf(touched, touchedSize);
+        long[] counts = new long[touchedSize];
+        if (global.length < scratch.length) {
+            global = Arrays.copyOf(global, scratch.length);
+        }
+        for (int i = 0; i < touchedSize; i++) {
+            int id = ids[i];
+            counts[i] = scratch[id];
+            global[id] += scratch[id];
+            scratch[id] = 0;
+        }
+        touchedSize = 0;
+        documents++;
+        return new DocumentWordCounts(ids, counts);
+    }
+
+    private void discardDocument() {
+        for (int i = 0; i < touchedSize; i++) {
+            scratch[touched[i]] = 0;
+        }
+        touchedSize = 0;
+    }
+}
@@ -0,0 +1,304 @@
+package ru.skillbench.tasks.text;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Отображение "слово - количество вхождений" с открытой адресацией и счетчиками в <code>long[]</code>.<br/>
+ * Слова добавляются прямо из буфера {@link WordTokenizer}: строка создается только
+ *  при первой встрече слова, а увеличение счетчика не создает объектов.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+final class WordCountMap {
+    private String[] keys;
+    private int[] hashes;
+    private long[] counts;
+    private int size;
+
+    WordCountMap() {
+        this(64);
+    }
+
+    /**
+     * @param expectedSize ожидаемое число различных слов
+     */
+    WordCountMap(int expectedSize) {
+        int capacity = 64;
+        while (capacity * 2 < expectedSize * 3) {
+            capacity *= 2;
+        }
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new long[capacity];
+    }
+
+    /**
+     * Увеличивает на 1 счетчик слова.
+     * @param chars символы слова
+     * @param length длина слова
+     * @param hash хеш слова, совпадающий с {@link String#hashCode()}
+     */
+    void add(char[] chars, int length, int hash) {
+        int mask = keys.length - 1;
+        int i = spread(hash) & mask;
+        String key;
+        while ((key = keys[i]) != null) {
+            if (hashes[i] == hash && equals(key, chars, length)) {
+                counts[i]++;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        insert(i, new String(chars, 0, length), hash, 1);
+    }
+
+    /**
+     * Увеличивает на <code>count</code> счетчик слова.
+     */
+    void add(String word, long count) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        int i = spread(hash) & mask;
+        String key;
+        while ((key = keys[i]) != null) {
+            if (hashes[i] == hash && key.equals(word)) {
+                counts[i] += count;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        insert(i, word, hash, count);
+    }
+
+    /**
+     * Прибавляет к счетчикам этого отображения счетчики <code>other</code>.
+     */
+    void addAll(WordCountMap other) {
+        for (int j = 0; j < other.keys.length; j++) {
+            if (other.keys[j] != null) add(other.keys[j], other.counts[j]);
+        }
+    }
+
+    /**
+     * @return независимая копия этого отображения
+     */
+    WordCountMap copy() {
+        WordCountMap copy = new WordCountMap();
+        copy.keys = keys.clone();
+        copy.hashes = hashes.clone();
+        copy.counts = counts.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return количество вхождений слова или 0, если слово не встречалось
+     */
+    long get(String word) {
+        int i = find(word);
+        return i < 0 ? 0 : counts[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Передает <code>action</code> каждое слово и его количество, не создавая объектов {@link Long}.
+     */
+    void forEach(ObjLongConsumer<String> action) {
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] != null) action.accept(keys[j], counts[j]);
+        }
+    }
+
+    /**
+     * @return {@link Map} только для чтения, которая читает данные прямо из этого отображения;
+     *   объекты {@link Long} и {@link Map.Entry} создаются только при обращении к ним
+     */
+    Map<String, Long> asMap() {
+        return new MapView();
+    }
+
+    /**
+     * Упорядочивает слова по убыванию количества вхождений, а слова с одинаковым количеством - по алфавиту,
+     *  как {@link WordCounter#getWordCountsSorted()}. Сортируются индексы в массивах счетчиков,
+     *  элементы списка создаются уже в нужном порядке.
+     * @return упорядоченный список пар "слово - количество вхождений", элементы которого нельзя изменить
+     */
+    List<Map.Entry<String, Long>> sorted() {
+        int[] order = new int[size];
+        int n = 0;
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] != null) order[n++] = j;
+        }
+        IndexSort.sort(order, 0, size, this::compare);
+        return entries(order);
+    }
+
+    /**
+     * Выбирает <code>k</code> первых в порядке {@link #compare(int, int)} слов среди ячеек
+     *  с номерами из [from, to) с помощью кучи из <code>k</code> элементов, то есть за O(n log k).
+     * @return номера ячеек выбранных слов в порядке {@link WordCounter#getWordCountsSorted()}
+     */
+    int[] top(int k, int from, int to) {
+        IndexSort.TopHeap heap = new IndexSort.TopHeap(Math.min(k, size), this::compare);
+        for (int j = from; j < to; j++) {
+            if (keys[j] != null) heap.offer(j);
+        }
+        return heap.toSortedArray();
+    }
+
+    /**
+     * Выбирает <code>k</code> первых слов среди ячеек с номерами <code>slots</code>:
+     *  например, чтобы слить кандидатов, отобранных {@link #top(int, int, int)} по частям таблицы.
+     */
+    int[] top(int k, int[] slots) {
+        IndexSort.TopHeap heap = new IndexSort.TopHeap(Math.min(k, slots.length), this::compare);
+        for (int j : slots) {
+            heap.offer(j);
+        }
+        return heap.toSortedArray();
+    }
+
+    /**
+     * @return число ячеек таблицы (номера ячеек для {@link #top(int, int, int)} - от 0 до capacity() - 1)
+     */
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * @return пары "слово - количество вхождений" для ячеек с номерами <code>slots</code>, в том же порядке
+     */
+    List<Map.Entry<String, Long>> entries(int[] slots) {
+        List<Map.Entry<String, Long>> result = new ArrayList<>(slots.length);
+        for (int j : slots) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(keys[j], counts[j]));
+        }
+        return result;
+    }
+
+    /**
+     * Порядок {@link WordCounter#getWordCountsSorted()}: по убыванию количества, затем по алфавиту.
+     */
+    int compare(int a, int b) {
+        int compare = Long.compare(counts[b], counts[a]);
+        return compare != 0 ? compare : keys[a].compareTo(keys[b]);
+    }
+
+    private int find(String word) {
+        int hash = word.hashCode();
+        int mask = keys.length - 1;
+        int i = spread(hash) & mask;
+        String key;
+        while ((key = keys[i]) != null) {
+            if (hashes[i] == hash && key.equals(word)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int i, String key, int hash, long count) {
+        keys[i] = key;
+        hashes[i] = hash;
+        counts[i] = count;
+        if (++size * 3 > keys.length * 2) {
+            resize();
+        }
+    }
+
+    static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static boolean equals(String key, char[] chars, int length) {
+        if (key.length() != length) return false;
+        for (int j = 0; j < length; j++) {
+            if (key.charAt(j) != chars[j]) return false;
+        }
+        return true;
+    }
+
+    private void resize() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldCounts = counts;
+        keys = new String[oldKeys.length * 2];
+        hashes = new int[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == null) continue;
+            int i = spread(oldHashes[j]) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            hashes[i] = oldHashes[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+
+    private class MapView extends AbstractMap<String, Long> {
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && find((String) key) >= 0;
+        }
+
+        @Override
+        public Long get(Object key) {
+            if (!(key instanceof String)) return null;
+            int i = find((String) key);
+            return i < 0 ? null : counts[i];
+        }
+
+        @Override
+        public Set<Entry<String, Long>> entrySet() {
+            return new AbstractSet<Entry<String, Long>>() {
+                @Override
+                public int size() {
+                    return size;
+                }
+
+                @Override
+                public Iterator<Entry<String, Long>> iterator() {
+                    return new Iterator<Entry<String, Long>>() {
+                        private int next = advance(0);
+
+                        private int advance(int i) {
+                            while (i < keys.length && keys[i] == null) i++;
+                            return i;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < keys.length;
+                        }
+
+                        @Override
+                        public Entry<String, Long> next() {
+                            if (next >= keys.length) throw new NoSuchElementException();
+                            Entry<String, Long> entry = new SimpleImmutableEntry<>(keys[next], counts[next]);
+                            next = advance(next + 1);
+                            return entry;
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package ru.skillbench.tasks.text;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Печать результатов подсчета в формате {@link WordCounter#print(List, PrintStream)}:
+ *  строки "слово количество" собираются в переиспользуемом буфере символов
+ *  (числа {@link Long} и {@link Integer} форматируются прямо в буфер, без создания строк),
+ *  а приемник вызывается один раз на заполненный буфер, а не на каждую строку.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+final class WordCountPrinter {
+    private static final int BUFFER_SIZE = 1 << 13;
+    private static final int BYTE_BUFFER_SIZE = 1 << 15;
+
+    /**
+     * Приемник заполненного буфера символов.
+     */
+    interface Target {
+        void write(char[] chars, int length) throws IOException;
+    }
+
+    /**
+     * Приемник заполненного буфера байтов (от position до limit).
+     */
+    private interface ByteTarget {
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    private final Target target;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int length;
+    private final String lineSeparator = System.lineSeparator();
+
+    WordCountPrinter(Target target) {
+        this.target = target;
+    }
+
+    static <K, V> void print(List<Map.Entry<K, V>> entryList, PrintStream ps) {
+        try {
+            new WordCountPrinter((chars, length) -> ps.append(CharBuffer.wrap(chars, 0, length))).print(entryList);
+        } catch (IOException e) {
+            // PrintStream не выбрасывает IOException, а запоминает ошибку (см. PrintStream#checkError())
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static <K, V> void print(List<Map.Entry<K, V>> entryList, Writer writer) throws IOException {
+        new WordCountPrinter((chars, length) -> writer.write(chars, 0, length)).print(entryList);
+        writer.flush();
+    }
+
+    static <K, V> void print(List<Map.Entry<K, V>> entryList, OutputStream out, Charset charset) throws IOException {
+        print(entryList, charset, bytes -> out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining()));
+        out.flush();
+    }
+
+    static <K, V> void print(List<Map.Entry<K, V>> entryList, WritableByteChannel channel, Charset charset)
+            throws IOException {
+        print(entryList, charset, bytes -> {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        });
+    }
+
+    private static <K, V> void print(List<Map.Entry<K, V>> entryList, Charset charset, ByteTarget target)
+            throws IOException {
+        CharsetEncoder encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer bytes = ByteBuffer.allocate(BYTE_BUFFER_SIZE);
+        new WordCountPrinter((chars, length) -> {
+            CharBuffer in = CharBuffer.wrap(chars, 0, length);
+            while (encoder.encode(in, bytes, false).isOverflow()) {
+                drain(bytes, target);
+            }
+        }).print(entryList);
+        CharBuffer empty = CharBuffer.allocate(0);
+        while (encoder.encode(empty, bytes, true).isOverflow()) {
+            drain(bytes, target);
+        }
+        while (encoder.flush(bytes).isOverflow()) {
+            drain(bytes, target);
+        }
+        drain(bytes, target);
+    }
+
+    private static void drain(ByteBuffer bytes, ByteTarget target) throws IOException {
+        bytes.flip();
+        if (bytes.hasRemaining()) target.write(bytes);
+        bytes.clear();
+    }
+
+    /**
+     * Печатает каждую пару на отдельной строке: ключ, один пробел, значение, {@link System#lineSeparator()}.
+     */
+    <K, V> void print(List<Map.Entry<K, V>> entryList) throws IOException {
+        for (Map.Entry<K, V> entry : entryList) {
+            append(entry.getKey());
+            append(" ");
+            append(entry.getValue());
+            append(lineSeparator);
+        }
+        flush(true);
+    }
+
+    /**
+     * Печатает одну строку в формате {@link #print(List)}; в конце нужно вызвать {@link #finish()}.
+     */
+    void print(String word, long count) throws IOException {
+        append(word);
+        append(" ");
+        append(count);
+        append(lineSeparator);
+    }
+
+    /**
+     * Отдает приемнику остаток буфера.
+     */
+    void finish() throws IOException {
+        flush(true);
+    }
+
+    private void append(Object value) throws IOException {
+        if (value instanceof Long || value instanceof Integer) {
+            append(((Number) value).longValue());
+        } else {
+            append(String.valueOf(value));
+        }
+    }
+
+    private void append(String s) throws IOException {
+        int i = 0;
+        while (i < s.length()) {
+            if (length == buffer.length) flush(false);
+            int n = Math.min(s.length() - i, buffer.length - length);
+            s.getChars(i, i + n, buffer, length);
+            length += n;
+            i += n;
+        }
+    }
+
+    private void append(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (buffer.length - length < 20) flush(false);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int end = length + digits(value);
+        int i = end;
+        do {
+            buffer[--i] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        length = end;
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        for (long limit = 10; digits < 19 && value >= limit; limit *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Отдает буфер приемнику. Старшую половину суррогатной пары в конце буфера придерживает
+     *  до следующего раза, чтобы кодировщик получил пару целиком.
+     */
+    private void flush(boolean last) throws IOException {
+        int n = length;
+        if (!last && n > 0 && Character.isHighSurrogate(buffer[n - 1])) n--;
+        if (n > 0) target.write(buffer, n);
+        if (n < length) buffer[0] = buffer[n];
+        length -= n;
+    }
+}
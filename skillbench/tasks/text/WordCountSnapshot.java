@@ -0,0 +1,462 @@
+package ru.skillbench.tasks.text;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Двоичный снимок результата подсчета слов ("слово - количество вхождений") в файле.<br/>
+ * Формат: заголовок, затем записи в порядке возрастания слов ({@link String#compareTo(String)}).
+ *  Запись - длина общего с предыдущим словом префикса в байтах, длина и байты остатка слова и количество;
+ *  все числа - varint (по 7 бит в байте, младшие группы первыми). Каждая {@link #RESTART_INTERVAL}-я запись
+ *  хранит слово целиком (точка перезапуска), а смещения точек перезапуска записаны в конце файла,
+ *  что позволяет искать слово двоичным поиском.<br/>
+ * Файл отображается в память, а слова декодируются только при обращении к ним,
+ *  поэтому открытие снимка не зависит от его размера, а {@link #merge(List, Path)} сливает много снимков,
+ *  не загружая их в кучу.<br/>
+ * Слово кодируется без потерь: каждый символ UTF-16 отдельно, 1-3 байтами, как символы до U+FFFF в UTF-8
+ *  (суррогатные символы, в том числе непарные, - по 3 байта, как в CESU-8), см. {@link #encode(String)}.
+ *  Поэтому байты слов упорядочены так же, как сами слова ({@link String#compareTo(String)}).<br/>
+ * Экземпляр неизменяем; {@link Cursor} не потокобезопасен.
+ */
+public final class WordCountSnapshot {
+    /**
+     * Через сколько записей слово записывается целиком
+     */
+    public static final int RESTART_INTERVAL = 16;
+    private static final int MAGIC = 0x57435332; // "WCS2"
+    private static final int HEADER_SIZE = 4;
+    /** Число точек перезапуска (int), число записей (long), MAGIC */
+    private static final int FOOTER_SIZE = 4 + 8 + 4;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ByteBuffer bytes;
+    private final long size;
+    /** Смещение массива смещений точек перезапуска (long каждое) */
+    private final int restartsOffset;
+    private final int restartCount;
+
+    private WordCountSnapshot(ByteBuffer bytes, long size, int restartsOffset, int restartCount) {
+        this.bytes = bytes;
+        this.size = size;
+        this.restartsOffset = restartsOffset;
+        this.restartCount = restartCount;
+    }
+
+    /**
+     * Записывает результат подсчета в файл (существующий файл перезаписывается).
+     *  Если запись не удалась, неполный файл удаляется.
+     * @param counts например, результат {@link WordCounter#getWordCounts()}
+     * @param path файл снимка
+     * @throws IOException при ошибке записи
+     * @throws IllegalArgumentException если какое-либо количество отрицательно
+     */
+    public static void write(Map<String, Long> counts, Path path) throws IOException {
+        String[] words = counts.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+        try (SnapshotWriter writer = new SnapshotWriter(path)) {
+            for (String word : words) {
+                writer.add(word, counts.get(word));
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * Открывает снимок, отображая файл в память.
+     * @param path файл снимка
+     * @throws IOException при ошибке чтения, если файл не является снимком или больше 2 ГБ
+     */
+    public static WordCountSnapshot open(Path path) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) throw new IOException("Snapshot is larger than 2 GB: " + path);
+            if (length < HEADER_SIZE + FOOTER_SIZE) throw new IOException("Not a word count snapshot: " + path);
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        int length = bytes.limit();
+        if (bytes.getInt(0) != MAGIC || bytes.getInt(length - 4) != MAGIC) {
+            throw new IOException("Not a word count snapshot: " + path);
+        }
+        long size = bytes.getLong(length - 12);
+        int restartCount = bytes.getInt(length - FOOTER_SIZE);
+        long restartsOffset = length - FOOTER_SIZE - 8L * restartCount;
+        if (size < 0 || restartCount < 0 || restartsOffset < HEADER_SIZE
+                || restartCount != (size + RESTART_INTERVAL - 1) / RESTART_INTERVAL) {
+            throw new IOException("Corrupted word count snapshot: " + path);
+        }
+        return new WordCountSnapshot(bytes, size, (int) restartsOffset, restartCount);
+    }
+
+    /**
+     * Сливает снимки: количества одинаковых слов складываются. Снимки читаются последовательно
+     *  курсорами, поэтому в памяти одновременно находится по одному слову из каждого снимка.
+     *  Если слияние не удалось, неполный файл результата удаляется.
+     * @param inputs файлы снимков
+     * @param output файл результата; не может быть одним из входных файлов: они отображены в память
+     *  во время слияния и не должны усекаться
+     * @throws IOException при ошибке чтения или записи
+     * @throws IllegalArgumentException если <code>output</code> - один из входных файлов
+     * @throws ArithmeticException если сумма количеств слова не помещается в long
+     */
+    public static void merge(List<Path> inputs, Path output) throws IOException {
+        if (Files.exists(output)) {
+            for (Path input : inputs) {
+                if (Files.isSameFile(input, output)) throw new IllegalArgumentException("Output is an input: " + output);
+            }
+        }
+        List<WordCountSnapshot> snapshots = new ArrayList<>(inputs.size());
+        for (Path input : inputs) {
+            snapshots.add(open(input));
+        }
+        try (SnapshotWriter writer = new SnapshotWriter(output)) {
+            merge(snapshots, writer);
+            writer.finish();
+        }
+    }
+
+    static void merge(List<WordCountSnapshot> snapshots, SnapshotWriter writer) throws IOException {
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Math.max(1, snapshots.size()),
+                (a, b) -> a.word().compareTo(b.word()));
+        for (WordCountSnapshot snapshot : snapshots) {
+            Cursor cursor = snapshot.cursor();
+            if (cursor.next()) queue.add(cursor);
+        }
+        while (!queue.isEmpty()) {
+            Cursor cursor = queue.poll();
+            String word = cursor.word();
+            long count = cursor.count();
+            if (cursor.next()) queue.add(cursor);
+            while (!queue.isEmpty() && queue.peek().word().equals(word)) {
+                Cursor same = queue.poll();
+                count = Math.addExact(count, same.count());
+                if (same.next()) queue.add(same);
+            }
+            writer.add(word, count);
+        }
+    }
+
+    /**
+     * @return число слов в снимке
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Ищет слово двоичным поиском по точкам перезапуска, декодируя O(log n + {@link #RESTART_INTERVAL}) слов.
+     * @return количество вхождений слова или 0, если его нет в снимке
+     */
+    public long get(String word) {
+        int low = 0;
+        int high = restartCount - 1;
+        // последняя точка перезапуска, слово в которой не больше искомого
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Cursor cursor = cursorAt(middle);
+            cursor.next();
+            int compare = cursor.word().compareTo(word);
+            if (compare == 0) return cursor.count();
+            if (compare < 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        if (found < 0) return 0;
+        Cursor cursor = cursorAt(found);
+        cursor.next();
+        for (int i = 1; i < RESTART_INTERVAL && cursor.next(); i++) {
+            int compare = cursor.word().compareTo(word);
+            if (compare == 0) return cursor.count();
+            if (compare > 0) break;
+        }
+        return 0;
+    }
+
+    /**
+     * @return курсор, проходящий записи снимка в порядке возрастания слов
+     */
+    public Cursor cursor() {
+        return new Cursor(HEADER_SIZE, 0);
+    }
+
+    private Cursor cursorAt(int restart) {
+        long offset = bytes.getLong(restartsOffset + 8 * restart);
+        return new Cursor((int) offset, (long) restart * RESTART_INTERVAL);
+    }
+
+    /**
+     * @return содержимое снимка в виде {@link Map}
+     */
+    public Map<String, Long> toMap() {
+        Map<String, Long> map = new HashMap<>((int) Math.min(Integer.MAX_VALUE, size * 4 / 3 + 1));
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            map.put(cursor.word(), cursor.count());
+        }
+        return map;
+    }
+
+    /**
+     * Последовательное чтение записей снимка; строка слова создается только при вызове {@link #word()}.
+     */
+    public final class Cursor {
+        private final ByteBuffer source = bytes.duplicate();
+        private int position;
+        private long index;
+        private byte[] key = new byte[64];
+        private int keyLength;
+        private long count;
+        private String word;
+        private boolean positioned;
+
+        private Cursor(int position, long index) {
+            this.position = position;
+            this.index = index;
+        }
+
+        /**
+         * Переходит к следующей записи.
+         * @return false, если записей больше нет
+         */
+        public boolean next() {
+            if (index >= size) {
+                positioned = false;
+                return false;
+            }
+            int shared = (int) readVarint();
+            int suffix = (int) readVarint();
+            if (shared + suffix > key.length) {
+                key = Arrays.copyOf(key, Math.max(key.length * 2, shared + suffix));
+            }
+            source.position(position);
+            source.get(key, shared, suffix);
+            position += suffix;
+            keyLength = shared + suffix;
+            count = readVarint();
+            word = null;
+            index++;
+            positioned = true;
+            return true;
+        }
+
+        /**
+         * @return слово текущей записи
+         * @throws NoSuchElementException если {@link #next()} еще не вызывался или вернул false
+         */
+        public String word() {
+            if (!positioned) throw new NoSuchElementException();
+            if (word == null) {
+                word = decode(key, 0, keyLength);
+            }
+            return word;
+        }
+
+        /**
+         * @return количество вхождений слова текущей записи
+         * @throws NoSuchElementException если {@link #next()} еще не вызывался или вернул false
+         */
+        public long count() {
+            if (!positioned) throw new NoSuchElementException();
+            return count;
+        }
+
+        private long readVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = bytes.get(position++);
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+
+    /**
+     * Кодирует слово для снимка: символы UTF-16 по отдельности, 1 байтом до U+007F, 2 байтами до U+07FF
+     *  и 3 байтами до U+FFFF (как в UTF-8). В отличие от {@link String#getBytes(java.nio.charset.Charset)},
+     *  непарные суррогатные символы не заменяются, поэтому разные слова не совпадают и не меняют порядок.
+     */
+    static byte[] encode(String word) {
+        int length = word.length();
+        int byteLength = length;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c >= 0x80) byteLength += c >= 0x800 ? 2 : 1;
+        }
+        byte[] key = new byte[byteLength];
+        int j = 0;
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (c < 0x80) {
+                key[j++] = (byte) c;
+            } else if (c < 0x800) {
+                key[j++] = (byte) (0xC0 | c >> 6);
+                key[j++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                key[j++] = (byte) (0xE0 | c >> 12);
+                key[j++] = (byte) (0x80 | c >> 6 & 0x3F);
+                key[j++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Декодирует байты <code>key</code> в диапазоне [from, to), записанные {@link #encode(String)}.
+     */
+    static String decode(byte[] key, int from, int to) {
+        char[] chars = new char[to - from];
+        int length = 0;
+        int i = from;
+        while (i < to) {
+            int b = key[i++];
+            if (b >= 0) {
+                chars[length++] = (char) b;
+            } else if ((b & 0xE0) == 0xC0) {
+                chars[length++] = (char) ((b & 0x1F) << 6 | key[i++] & 0x3F);
+            } else {
+                chars[length++] = (char) ((b & 0x0F) << 12 | (key[i] & 0x3F) << 6 | key[i + 1] & 0x3F);
+                i += 2;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Последовательная запись снимка через {@link FileChannel}: слова добавляются в порядке возрастания,
+     *  затем {@link #finish()} дописывает точки перезапуска и заключительную часть с {@link #MAGIC}.
+     *  Если {@link #close()} вызван без успешного {@link #finish()} (например, при исключении в блоке
+     *  try-with-resources), файл удаляется, чтобы {@link #open(Path)} не принял неполный снимок за целый.
+     */
+    static final class SnapshotWriter implements Closeable {
+        private final Path path;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private long offset;
+        private byte[] previous = new byte[0];
+        private String previousWord;
+        private long size;
+        private long[] restarts = new long[64];
+        private int restartCount;
+        private boolean finished;
+
+        SnapshotWriter(Path path) throws IOException {
+            this.path = path;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC);
+        }
+
+        /**
+         * @throws IllegalArgumentException если слово не больше предыдущего или количество отрицательно
+         */
+        void add(String word, long count) throws IOException {
+            if (count < 0) throw new IllegalArgumentException("count < 0: " + count + " for " + word);
+            if (previousWord != null && previousWord.compareTo(word) >= 0) {
+                throw new IllegalArgumentException("Words are not in ascending order: " + previousWord + ", " + word);
+            }
+            byte[] key = encode(word);
+            int shared = 0;
+            if (size % RESTART_INTERVAL == 0) {
+                if (restartCount == restarts.length) {
+                    restarts = Arrays.copyOf(restarts, restartCount * 2);
+                }
+                restarts[restartCount++] = offset + buffer.position();
+            } else {
+                int limit = Math.min(previous.length, key.length);
+                while (shared < limit && previous[shared] == key[shared]) shared++;
+            }
+            ensure(30);
+            writeVarint(shared);
+            writeVarint(key.length - shared);
+            if (key.length - shared > buffer.remaining()) flush();
+            if (key.length - shared > buffer.remaining()) {
+                ByteBuffer suffix = ByteBuffer.wrap(key, shared, key.length - shared);
+                while (suffix.hasRemaining()) {
+                    offset += channel.write(suffix);
+                }
+            } else {
+                buffer.put(key, shared, key.length - shared);
+            }
+            ensure(10);
+            writeVarint(count);
+            previous = key;
+            previousWord = word;
+            size++;
+        }
+
+        long size() {
+            return size;
+        }
+
+        /**
+         * @return число байтов, записанных на данный момент
+         */
+        long length() {
+            return offset + buffer.position();
+        }
+
+        /**
+         * Завершает снимок; после этого слова добавлять нельзя.
+         */
+        void finish() throws IOException {
+            for (int i = 0; i < restartCount; i++) {
+                ensure(8);
+                buffer.putLong(restarts[i]);
+            }
+            ensure(FOOTER_SIZE);
+            buffer.putInt(restartCount);
+            buffer.putLong(size);
+            buffer.putInt(MAGIC);
+            flush();
+            finished = true;
+        }
+
+        /**
+         * Закрывает файл; если снимок не завершен {@link #finish()}, удаляет его.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                if (!finished) Files.deleteIfExists(path);
+            }
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) flush();
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                offset += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
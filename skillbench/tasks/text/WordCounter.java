@@ -1,6 +1,18 @@
 package ru.skillbench.tasks.text;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
@@ -44,6 +56,64 @@ public interface WordCounter
      */
     void setText(String text);
 
+    /**
+     * Дописывает <code>piece</code> в конец анализируемого текста
+     *  (если текст еще не задан, <code>piece</code> становится текстом для анализа).<br/>
+     * Тег или слово, разорванные между частями текста, учитываются так же, как в цельном тексте.<br/>
+     * Реализация по умолчанию просто вызывает {@link #setText(String)} для склеенного текста;
+     *  реализации могут не пересчитывать уже разобранную часть текста.
+     * @param piece продолжение текста
+     */
+    default void appendText(CharSequence piece) {
+        String text = getText();
+        setText(text == null ? piece.toString() : text + piece);
+    }
+
+    /**
+     * Принимает для анализа текст, читаемый из <code>reader</code> до конца (поток не закрывается).<br/>
+     * Реализация по умолчанию читает весь текст в память и вызывает {@link #setText(String)};
+     *  реализации могут подсчитывать слова по мере чтения, не сохраняя текст -
+     *  тогда {@link #getText()} после этого метода возвращает <code>null</code>.
+     * @param reader источник текста
+     * @throws IOException при ошибке чтения
+     */
+    default void setInput(Reader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, n);
+        }
+        setText(text.toString());
+    }
+
+    /**
+     * Принимает для анализа текст, читаемый из <code>in</code> в кодировке <code>charset</code>
+     *  (поток не закрывается); см. {@link #setInput(Reader)}.
+     * @throws IOException при ошибке чтения
+     */
+    default void setInput(InputStream in, Charset charset) throws IOException {
+        setInput(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Принимает для анализа содержимое файла в кодировке <code>charset</code>; см. {@link #setInput(Reader)}.
+     * @throws IOException при ошибке чтения
+     */
+    default void setInput(Path path, Charset charset) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            setInput(in, charset);
+        }
+    }
+
+    /**
+     * Принимает для анализа содержимое файла в кодировке UTF-8; см. {@link #setInput(Reader)}.
+     * @throws IOException при ошибке чтения
+     */
+    default void setInput(Path path) throws IOException {
+        setInput(path, StandardCharsets.UTF_8);
+    }
+
     /**
      * @return текст, переданный для анализа при последнем вызове метода
      * {@link #setText(java.lang.String) setText}, или <code>null</code>,
@@ -80,6 +150,54 @@ public interface WordCounter
      */
     List<Map.Entry<String, Long>> getWordCountsSorted();
 
+    /**
+     * Возвращает <code>k</code> первых элементов списка {@link #getWordCountsSorted()}
+     *  (или весь список, если в тексте меньше <code>k</code> различных слов) - то есть
+     *  самые частые слова в том же порядке и с тем же упорядочиванием слов с одинаковым количеством вхождений.<br/>
+     * Реализация по умолчанию сортирует все слова; реализации могут выбирать слова, не сортируя весь словарь.
+     * @param k число слов
+     * @return упорядоченный список не более чем из <code>k</code> самых частых слов
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     * @throws IllegalStateException если не задан текст для анализа
+     */
+    default List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        List<Map.Entry<String, Long>> sorted = getWordCountsSorted();
+        return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+    }
+
+    /**
+     * Возвращает {@link Map}, сопоставляющую каждой n-грамме (последовательности из <code>n</code> подряд идущих слов,
+     *  записанных через один пробел) количество ее вхождений в анализируемый текст.<br/>
+     * Слова выделяются по тем же правилам, что и в {@link #getWordCounts()}; при <code>n</code> = 1 результаты совпадают.<br/>
+     * N-граммы считаются заново по тексту {@link #getText()}, поэтому метод работает, только если текст задан
+     *  {@link #setText(String)} (и, возможно, продолжен {@link #appendText(CharSequence)}). После методов, которые
+     *  не сохраняют текст (например, {@link #setInput(Reader)} в {@link WordCounterImpl}), {@link #getText()}
+     *  возвращает <code>null</code>, и метод выбрасывает {@link IllegalStateException}; для такого источника
+     *  n-граммы можно подсчитать {@link NGramCounter#add(Reader)}.
+     * @param n длина n-граммы в словах, от 1 до {@link NGramCounter#MAX_N}
+     * @return результат подсчета количеств вхождений n-грамм
+     * @throws IllegalArgumentException если <code>n</code> вне допустимых пределов
+     * @throws IllegalStateException если {@link #getText()} возвращает <code>null</code>: текст для анализа не задан
+     *   или не сохранен
+     */
+    default Map<String, Long> getNGramCounts(int n) {
+        return NGramCounter.count(n, getText()).getCounts();
+    }
+
+    /**
+     * Как {@link #getNGramCounts(int)} (и с теми же ограничениями на источник текста),
+     *  но упорядочено, как {@link #getWordCountsSorted()}.
+     * @param n длина n-граммы в словах, от 1 до {@link NGramCounter#MAX_N}
+     * @return упорядоченный результат подсчета количеств вхождений n-грамм
+     * @throws IllegalArgumentException если <code>n</code> вне допустимых пределов
+     * @throws IllegalStateException если {@link #getText()} возвращает <code>null</code>: текст для анализа не задан
+     *   или не сохранен
+     */
+    default List<Map.Entry<String, Long>> getNGramCountsSorted(int n) {
+        return NGramCounter.count(n, getText()).getCountsSorted();
+    }
+
     /**
      * Упорядочивает содержимое <code>map</code> (это слова и количество их вхождений)
      *  в соответствии с <code>comparator</code>.<br/>
@@ -106,4 +224,41 @@ public interface WordCounter
      * @param ps Поток вывода - например, System.out.
      */
     <K,V> void print(List<Map.Entry<K, V>> entryList, PrintStream ps);
+
+    /**
+     * Распечатывает <code>entryList</code> в <code>writer</code> в том же формате,
+     *  что и {@link #print(List, PrintStream)}, после чего вызывает {@link Writer#flush()}.<br/>
+     * Строки собираются в буфере и передаются в <code>writer</code> большими блоками.
+     * @param entryList Список пар - например, результат подсчета числа слов
+     * @param writer Приемник текста
+     * @throws IOException при ошибке записи
+     */
+    default <K, V> void print(List<Map.Entry<K, V>> entryList, Writer writer) throws IOException {
+        WordCountPrinter.print(entryList, writer);
+    }
+
+    /**
+     * Распечатывает <code>entryList</code> в <code>out</code> в кодировке <code>charset</code>
+     *  в том же формате, что и {@link #print(List, PrintStream)}, после чего вызывает {@link OutputStream#flush()}.
+     * @param entryList Список пар - например, результат подсчета числа слов
+     * @param out Поток вывода
+     * @param charset Кодировка
+     * @throws IOException при ошибке записи
+     */
+    default <K, V> void print(List<Map.Entry<K, V>> entryList, OutputStream out, Charset charset) throws IOException {
+        WordCountPrinter.print(entryList, out, charset);
+    }
+
+    /**
+     * Распечатывает <code>entryList</code> в <code>channel</code> в кодировке <code>charset</code>
+     *  в том же формате, что и {@link #print(List, PrintStream)}.
+     * @param entryList Список пар - например, результат подсчета числа слов
+     * @param channel Канал вывода
+     * @param charset Кодировка
+     * @throws IOException при ошибке записи
+     */
+    default <K, V> void print(List<Map.Entry<K, V>> entryList, WritableByteChannel channel, Charset charset)
+            throws IOException {
+        WordCountPrinter.print(entryList, channel, charset);
+    }
 }
@@ -1,17 +1,200 @@
 package ru.skillbench.tasks.text;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
+/**
+ * Результат подсчета запоминается и пересчитывается только после смены текста
+ *  ({@link #setText(String)}, {@link #appendText(CharSequence)}, {@link #setInput(Reader)},
+ *  {@link #setMappedInput(Path)}). Возвращаемые {@link Map} и списки неизменяемы,
+ *  поэтому их можно передавать другим потокам.<br/>
+ * Методы экземпляра можно вызывать из разных потоков: изменение текста и подсчет выполняются под блокировкой
+ *  экземпляра, а уже готовый результат читается без нее.
+ *  В режиме {@link #setEagerCounting(boolean) упреждающего подсчета} слова считаются в фоне сразу после смены текста.
+ */
 public class WordCounterImpl implements WordCounter {
+    /**
+     * Длина текста (в символах), начиная с которой по умолчанию подсчет выполняется параллельно
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 20;
+    /**
+     * Минимальная длина куска текста, который считается одной задачей в параллельном режиме
+     */
+    private static final int MIN_CHUNK = 1 << 16;
+    /**
+     * Число различных слов, начиная с которого {@link #getTopWords(int)} отбирает слова параллельно
+     */
+    private static final int PARALLEL_TOP_THRESHOLD = 1 << 16;
+    /**
+     * Размер буфера для чтения текста из {@link Reader}
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Наибольший и наименьший размер куска файла, отображаемого в память в {@link #setMappedInput(Path)}
+     */
+    private static final int MAX_MAP_SEGMENT = 1 << 26;
+    private static final int MIN_MAP_SEGMENT = 1 << 20;
+    /**
+     * Сколько байтов после номинального конца куска просматривается в поисках границы между словами
+     */
+    private static final int MAP_SLACK = 1 << 16;
+
     private String text = null;
+    /** Текст, наращиваемый {@link #appendText(CharSequence)}, или null */
+    private StringBuilder appended;
+    /** Слова из уже разобранной части текста (без незавершенного последнего слова) */
+    private WordCountMap counts;
+    /** Состояние разбора на конце уже разобранной части текста */
+    private WordTokenizer tokenizer;
+    /** Длина уже разобранной части текста */
+    private int counted;
+    /** Текст был прочитан {@link #setInput(Reader)} и не сохранен */
+    private boolean streamed;
+    private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private ForkJoinPool pool;
+    /** Результат подсчета для текущего текста или null, если текст изменился после подсчета */
+    private volatile Result result;
+    private boolean eagerCounting;
+    /** Фоновый подсчет запланирован, но еще не начат */
+    private boolean countScheduled;
 
     @Override
-    public void setText(String text) {
+    public synchronized void setText(String text) {
         this.text = text;
+        this.appended = null;
+        this.counts = null;
+        this.tokenizer = null;
+        this.counted = 0;
+        this.streamed = false;
+        textChanged();
+    }
+
+    /**
+     * Подсчитывает слова по мере чтения <code>reader</code> буферами фиксированного размера;
+     *  слово или тег, разорванные между буферами, учитываются так же, как в цельном тексте.<br/>
+     * Сам текст не сохраняется, поэтому память ограничена размером словаря, а не объемом текста,
+     *  и {@link #getText()} после этого метода возвращает <code>null</code>.
+     *  Методом {@link #appendText(CharSequence)} можно продолжить прочитанный текст.<br/>
+     * Поток не закрывается.
+     * @param reader источник текста
+     * @throws IOException при ошибке чтения (тогда текст для анализа сбрасывается, как при setText(null))
+     */
+    @Override
+    public synchronized void setInput(Reader reader) throws IOException {
+        setText(null);
+        WordCountMap words = new WordCountMap();
+        WordTokenizer reading = new WordTokenizer(words::add);
+        char[] buffer = new char[BUFFER_SIZE];
+        int n;
+        while ((n = reader.read(buffer)) >= 0) {
+            reading.feed(buffer, 0, n);
+        }
+        counts = words;
+        tokenizer = reading;
+        streamed = true;
+        textChanged();
+    }
+
+    /**
+     * Дописывает <code>piece</code> в конец анализируемого текста.<br/>
+     * Уже подсчитанные слова не пересчитываются: при следующем запросе результатов разбирается
+     *  только дописанная часть (с учетом слова или тега, начатого в конце прежнего текста).
+     * @param piece продолжение текста
+     */
+    @Override
+    public synchronized void appendText(CharSequence piece) {
+        Objects.requireNonNull(piece);
+        if (appended == null) {
+            appended = text == null ? new StringBuilder() : new StringBuilder(text);
+        }
+        appended.append(piece);
+        text = null;
+        textChanged();
+    }
+
+    /**
+     * Подсчитывает слова в файле в кодировке UTF-8, отображая его в память ({@link FileChannel#map}).<br/>
+     * Байты разбираются без декодирования в символы, строка создается только для нового слова.
+     *  Большой файл отображается несколькими кусками, которые разрезаются только по границам между словами
+     *  и считаются параллельно (см. {@link #setParallelism(int)}).<br/>
+     * Как и после {@link #setInput(Reader)}, {@link #getText()} возвращает <code>null</code>,
+     *  а {@link #appendText(CharSequence)} продолжает текст файла.
+     * @param path файл в кодировке UTF-8
+     * @throws IOException при ошибке чтения или если в файле более 2 ГБ подряд нет ни одной границы между словами
+     *   (тогда текст для анализа сбрасывается, как при setText(null))
+     */
+    public synchronized void setMappedInput(Path path) throws IOException {
+        setText(null);
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tail = new WordTokenizer(words::add);
+        List<ForkJoinTask<Utf8WordTable>> tasks = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int segment = (int) Math.max(MIN_MAP_SEGMENT, Math.min(MAX_MAP_SEGMENT, size / (parallelism * 4L)));
+            long start = 0;
+            boolean last = false;
+            while (!last) {
+                ByteBuffer bytes;
+                int split;
+                long window = (long) segment + MAP_SLACK;
+                while (true) {
+                    long length = Math.min(size - start, Math.min(window, Integer.MAX_VALUE));
+                    last = start + length == size;
+                    bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                    // у последнего куска отрезаем хвост: он разбирается посимвольно,
+                    //  чтобы appendText() мог продолжить незаконченное слово или тег
+                    int from = last ? (int) Math.max(0, length - MAP_SLACK) : segment;
+                    split = Utf8WordTokenizer.findSplit(bytes, from, (int) length, last);
+                    if (last && split < 0) split = 0;
+                    if (split >= 0) break;
+                    if (length == Integer.MAX_VALUE) throw new IOException("No word boundary in " + path + " after " + start);
+                    window *= 2;
+                }
+                if (split > 0) {
+                    ByteBuffer segmentBytes = bytes;
+                    int segmentLength = split;
+                    ForkJoinTask<Utf8WordTable> task = ForkJoinTask.adapt(() -> countUtf8(segmentBytes, segmentLength));
+                    if (parallelism > 1) getPool().execute(task);
+                    else task.invoke();
+                    tasks.add(task);
+                }
+                if (last) {
+                    ByteBuffer tailBytes = bytes.duplicate();
+                    tailBytes.position(split);
+                    CharBuffer chars = StandardCharsets.UTF_8.decode(tailBytes);
+                    tail.feed(chars, 0, chars.length());
+                }
+                start += split;
+            }
+        }
+        for (ForkJoinTask<Utf8WordTable> task : tasks) {
+            task.join().addTo(words);
+        }
+        counts = words;
+        tokenizer = tail;
+        streamed = true;
+        textChanged();
     }
+
+    private static Utf8WordTable countUtf8(ByteBuffer bytes, int length) {
+        Utf8WordTable table = new Utf8WordTable();
+        new Utf8WordTokenizer(table).count(bytes, 0, length);
+        return table;
+    }
+
     /**
      * @return текст, переданный для анализа при последнем вызове метода
      * {@link #setText(java.lang.String) setText}, или <code>null</code>,
@@ -19,7 +202,11 @@ public class WordCounterImpl implements WordCounter {
      * с параметром <code>null</code>
      */
     @Override
-    public String getText() {
+    public synchronized String getText() {
+        if (streamed) return null;
+        if (text == null && appended != null) {
+            text = appended.toString();
+        }
         return this.text;
     }
 
@@ -29,6 +216,7 @@ public class WordCounterImpl implements WordCounter {
      * Все возвращаемые слова должны быть приведены к нижнему регистру.<br/>
      * Дополнительно оценивается, если из рассмотрения исключены слова, начинающиеся с &lt;
      * и заканчивающиеся на &gt; (то есть, расположенные в угловых скобках).<br/>
+     * Возвращаемая {@link Map} доступна только для чтения.<br/>
      * @return результат подсчета количеств вхождений слов
      * @throws IllegalStateException если не задан текст для анализа
      *   (если метод {@link #setText(String)} еще не вызывался
@@ -36,18 +224,175 @@ public class WordCounterImpl implements WordCounter {
      */
     @Override
     public Map<String, Long> getWordCounts() {
-        if (getText() == null) throw new IllegalStateException();
+        return result().map;
+    }
+
+    /**
+     * Включает или выключает упреждающий подсчет: после каждой смены текста слова считаются в фоне
+     *  (в пуле потоков параллельного режима), и первый запрос результата получает уже готовый ответ
+     *  или дожидается окончания начатого подсчета.<br/>
+     * Несколько изменений текста подряд, сделанных до начала фонового подсчета, считаются одним подсчетом.
+     * @param eagerCounting true - считать в фоне, false (по умолчанию) - при первом запросе результата
+     */
+    public synchronized void setEagerCounting(boolean eagerCounting) {
+        this.eagerCounting = eagerCounting;
+        if (eagerCounting && result == null) scheduleCount();
+    }
+
+    public synchronized boolean isEagerCounting() {
+        return eagerCounting;
+    }
+
+    private void textChanged() {
+        result = null;
+        if (eagerCounting) scheduleCount();
+    }
+
+    private void scheduleCount() {
+        if (countScheduled || (text == null && appended == null && counts == null)) return;
+        countScheduled = true;
+        CompletableFuture.runAsync(() -> {
+            synchronized (this) {
+                countScheduled = false;
+                if (text != null || appended != null || counts != null) result();
+            }
+        }, getPool());
+    }
+
+    /**
+     * Задает число потоков для параллельного подсчета слов.<br/>
+     * По умолчанию равно параллелизму {@link ForkJoinPool#commonPool()}; значение 1 отключает параллельный режим.
+     * @param parallelism число потоков, не меньше 1
+     * @throws IllegalArgumentException если <code>parallelism</code> меньше 1
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism < 1: " + parallelism);
+        if (parallelism != this.parallelism) {
+            if (pool != null && pool != ForkJoinPool.commonPool()) pool.shutdown();
+            pool = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    public synchronized int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Задает длину текста (в символах), начиная с которой подсчет выполняется параллельно;
+     *  более короткие тексты считаются в текущем потоке.
+     * @param parallelThreshold минимальная длина текста для параллельного подсчета
+     * @throws IllegalArgumentException если <code>parallelThreshold</code> отрицательно
+     */
+    public synchronized void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) throw new IllegalArgumentException("parallelThreshold < 0: " + parallelThreshold);
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public synchronized int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = parallelism == ForkJoinPool.getCommonPoolParallelism()
+                    ? ForkJoinPool.commonPool() : new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
 
-        HashMap<String, Long> words = new HashMap<>();
-        String text = getText().replaceAll("<\\s*\\S*\\s*>|[,.?:;!\"()—]", "").toLowerCase();
-        Pattern wordPattern = Pattern.compile("\\S+");
-        Matcher matcher = wordPattern.matcher(text);
-        while (matcher.find()) {
-            Long count = words.get(matcher.group());
-            words.put(matcher.group(), count == null ? 1 : ++count);
+    /**
+     * @return запомненный результат подсчета или новый, если текст изменился
+     * @throws IllegalStateException если не задан текст для анализа
+     */
+    private Result result() {
+        Result current = result;
+        if (current != null) return current;
+        synchronized (this) {
+            if (result == null) {
+                result = new Result(countWords());
+            }
+            return result;
         }
+    }
+
+    /**
+     * Дописывает в счетчики еще не разобранную часть текста и возвращает результат для всего текста.
+     * @return новый {@link WordCountMap}, который больше не изменяется этим объектом
+     */
+    private WordCountMap countWords() {
+        CharSequence text = appended != null ? appended : this.text;
+        if (text == null && counts == null) throw new IllegalStateException();
+
+        if (counts == null) {
+            int length = text.length();
+            int split = parallelism > 1 && length >= parallelThreshold
+                    ? WordTokenizer.findSplit(text, length - Math.min(length, MIN_CHUNK), length) : -1;
+            if (split > 0) {
+                int chunk = Math.max(MIN_CHUNK, split / (parallelism * 4));
+                counts = getPool().invoke(new CountTask(text, 0, split, chunk));
+                counted = split;
+            } else {
+                counts = new WordCountMap();
+            }
+            tokenizer = new WordTokenizer(counts::add);
+        }
+        if (text != null) {
+            tokenizer.feed(text, counted, text.length());
+            counted = text.length();
+        }
+
+        WordCountMap result = counts.copy();
+        tokenizer.copy(result::add).finish();
+        return result;
+    }
+
+    private static WordCountMap count(CharSequence text, int from, int to) {
+        WordCountMap words = new WordCountMap();
+        WordTokenizer tokenizer = new WordTokenizer(words::add);
+        tokenizer.feed(text, from, to);
+        tokenizer.finish();
         return words;
     }
+
+    /**
+     * Делит текст пополам по {@link WordTokenizer#findSplit(CharSequence, int, int) безопасной границе},
+     *  считает половины независимо и сливает их результаты.
+     */
+    private static class CountTask extends RecursiveTask<WordCountMap> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        CountTask(CharSequence text, int from, int to, int chunk) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected WordCountMap compute() {
+            int split = to - from > chunk ? WordTokenizer.findSplit(text, from + (to - from) / 2, to) : -1;
+            if (split < 0) {
+                return count(text, from, to);
+            }
+            CountTask left = new CountTask(text, from, split, chunk);
+            left.fork();
+            WordCountMap right = new CountTask(text, split, to, chunk).compute();
+            WordCountMap words = left.join();
+            if (words.size() < right.size()) {
+                WordCountMap swap = words;
+                words = right;
+                right = swap;
+            }
+            words.addAll(right);
+            return words;
+        }
+    }
     /**
      * Возвращает список из {@link Map.Entry Map.Entry}&lt;{@link String}, {@link Long}&gt;,
      * сопоставляющий каждому слову количество его вхождений в анализируемый текст
@@ -63,10 +408,39 @@ public class WordCounterImpl implements WordCounter {
      */
     @Override
     public List<Map.Entry<String, Long>> getWordCountsSorted() {
-        return sort(getWordCounts(), (firstWord, secondWord) -> {
-            int compare = secondWord.getValue().compareTo(firstWord.getValue());
-            return compare != 0 ? compare : firstWord.getKey().compareTo(secondWord.getKey());
-        });
+        Result current = result();
+        List<Map.Entry<String, Long>> sorted = current.sorted;
+        if (sorted == null) {
+            // гонка безвредна: одновременно отсортированные списки одинаковы
+            current.sorted = sorted = Collections.unmodifiableList(current.words.sorted());
+        }
+        return sorted;
+    }
+
+    /**
+     * Возвращает <code>k</code> самых частых слов в порядке {@link #getWordCountsSorted()}.<br/>
+     * Слова выбираются кучей из <code>k</code> элементов за O(n log k) без сортировки всего словаря;
+     *  большой словарь делится на части, кандидаты из каждой части отбираются параллельно и затем сливаются.
+     * @param k число слов
+     * @return упорядоченный список не более чем из <code>k</code> самых частых слов
+     * @throws IllegalArgumentException если <code>k</code> отрицательно
+     * @throws IllegalStateException если не задан текст для анализа
+     */
+    @Override
+    public List<Map.Entry<String, Long>> getTopWords(int k) {
+        if (k < 0) throw new IllegalArgumentException("k < 0: " + k);
+        Result current = result();
+        List<Map.Entry<String, Long>> sorted = current.sorted;
+        if (sorted != null) {
+            return new ArrayList<>(sorted.subList(0, Math.min(k, sorted.size())));
+        }
+        WordCountMap words = current.words;
+        int parallelism = getParallelism();
+        if (parallelism > 1 && words.size() >= PARALLEL_TOP_THRESHOLD) {
+            int chunk = Math.max(PARALLEL_TOP_THRESHOLD, words.capacity() / (parallelism * 4));
+            return words.entries(getPool().invoke(new TopTask(words, k, 0, words.capacity(), chunk)));
+        }
+        return words.entries(words.top(k, 0, words.capacity()));
     }
 
     /**
@@ -101,6 +475,59 @@ public class WordCounterImpl implements WordCounter {
      */
     @Override
     public <K, V> void print(List<Map.Entry<K, V>> entryList, PrintStream ps) {
-        for(Map.Entry<K, V> map : entryList) ps.println(map.getKey() + " " + map.getValue());
+        WordCountPrinter.print(entryList, ps);
+    }
+
+    /**
+     * Неизменяемый результат подсчета: {@link WordCountMap} после создания не изменяется,
+     *  а упорядоченный список строится при первом запросе.
+     */
+    private static final class Result {
+        final WordCountMap words;
+        final Map<String, Long> map;
+        volatile List<Map.Entry<String, Long>> sorted;
+
+        Result(WordCountMap words) {
+            this.words = words;
+            this.map = words.asMap();
+        }
+    }
+
+    /**
+     * Отбирает <code>k</code> лучших слов в каждой части таблицы {@link WordCountMap} и сливает кандидатов.
+     *  Счетчики в таблице уже итоговые, поэтому слово из общего top-k обязательно попадает
+     *  в top-k своей части и результат совпадает с последовательным отбором.
+     */
+    private static class TopTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final WordCountMap words;
+        private final int k;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        TopTask(WordCountMap words, int k, int from, int to, int chunk) {
+            this.words = words;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= chunk) {
+                return words.top(k, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            TopTask left = new TopTask(words, k, from, middle, chunk);
+            left.fork();
+            int[] right = new TopTask(words, k, middle, to, chunk).compute();
+            int[] leftTop = left.join();
+            int[] candidates = Arrays.copyOf(leftTop, leftTop.length + right.length);
+            System.arraycopy(right, 0, candidates, leftTop.length, right.length);
+            return words.top(k, candidates);
+        }
     }
 }
@@ -0,0 +1,113 @@
+package ru.skillbench.tasks.text;
+
+import java.util.Arrays;
+
+/**
+ * Словарь, сопоставляющий словам номера 0, 1, 2... в порядке их первой встречи.<br/>
+ * Слова добавляются прямо из буфера {@link WordTokenizer}: строка создается только при первой встрече слова,
+ *  поэтому общий для многих документов словарь хранит каждое слово один раз.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public final class WordDictionary {
+    private String[] words = new String[64];
+    private int[] hashes = new int[64];
+    /** Хеш-таблица с открытой адресацией: номер слова + 1 или 0 */
+    private int[] table = new int[128];
+    private int size;
+
+    /**
+     * @return номер слова или -1, если слова нет в словаре
+     */
+    public int idOf(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && words[id].equals(word)) return id;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @return слово с номером <code>id</code>
+     * @throws IndexOutOfBoundsException если слова с таким номером нет
+     */
+    public String word(int id) {
+        if (id < 0 || id >= size) throw new IndexOutOfBoundsException("id: " + id + ", size: " + size);
+        return words[id];
+    }
+
+    /**
+     * @return число слов в словаре (номера слов - от 0 до size() - 1)
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Возвращает номер слова, добавляя слово в словарь, если его там нет.
+     * @param chars символы слова
+     * @param length длина слова
+     * @param hash хеш слова, совпадающий с {@link String#hashCode()}
+     */
+    int add(char[] chars, int length, int hash) {
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && WordCountMap.equals(words[id], chars, length)) return id;
+            i = (i + 1) & mask;
+        }
+        return append(new String(chars, 0, length), hash, i);
+    }
+
+    /**
+     * Возвращает номер строки <code>word</code>, добавляя ее в словарь, если ее там нет.
+     */
+    int add(String word) {
+        int hash = word.hashCode();
+        int mask = table.length - 1;
+        int i = WordCountMap.spread(hash) & mask;
+        int entry;
+        while ((entry = table[i]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && words[id].equals(word)) return id;
+            i = (i + 1) & mask;
+        }
+        return append(word, hash, i);
+    }
+
+    /**
+     * Добавляет слово, которого нет в словаре, в свободную ячейку <code>slot</code> хеш-таблицы.
+     */
+    private int append(String word, int hash, int slot) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        words[id] = word;
+        hashes[id] = hash;
+        table[slot] = id + 1;
+        if (size * 3 > table.length * 2) {
+            resize();
+        }
+        return id;
+    }
+
+    private void resize() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = WordCountMap.spread(hashes[id]) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id + 1;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package ru.skillbench.tasks.text;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Однопроходный разборщик текста на слова для {@link WordCounterImpl}.<br/>
+ * Дает те же слова, что и прежняя реализация
+ *  <code>text.replaceAll("&lt;\\s*\\S*\\s*&gt;|[,.?:;!\"()—]", "").toLowerCase()</code> + поиск <code>\S+</code>,
+ *  но не копирует текст: теги в угловых скобках и знаки препинания пропускаются на лету,
+ *  а слова приводятся к нижнему регистру прямо в буфере.<br/>
+ * Текст можно подавать частями ({@link #feed(CharSequence, int, int)}): тег или слово,
+ *  разорванные между частями, обрабатываются так же, как в цельном тексте.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+final class WordTokenizer {
+
+    /**
+     * Получатель найденных слов.
+     */
+    interface Sink {
+        /**
+         * @param chars буфер, в начале которого лежит слово в нижнем регистре;
+         *   буфер переиспользуется и действителен только до возврата из метода
+         * @param length длина слова
+         * @param hash хеш слова, совпадающий с {@link String#hashCode()}
+         */
+        void word(char[] chars, int length, int hash);
+    }
+
+    /** Обычный текст */
+    private static final int PLAIN = 0;
+    /** После '&lt;': пропускаем пробельные символы */
+    private static final int TAG_OPEN = 1;
+    /** Внутри непрерывной последовательности непробельных символов тега */
+    private static final int TAG_BODY = 2;
+    /** После этой последовательности: пробельные символы, затем ожидается '&gt;' */
+    private static final int TAG_CLOSE = 3;
+
+    private final Sink sink;
+    private final Locale locale;
+    private final boolean fastLowerCase;
+
+    private char[] word = new char[32];
+    private int wordLength;
+    /** Все символы текущего слова - ASCII или кириллица */
+    private boolean wordFast = true;
+
+    private int state = PLAIN;
+    /** Символы после '&lt;', которые еще неизвестно, входят ли в тег */
+    private char[] tag = new char[32];
+    private int tagLength;
+    /** Позиция последнего '&gt;' в {@link #tag} внутри TAG_BODY или -1 */
+    private int tagLastGt = -1;
+
+    /** Символы, которые нужно разобрать повторно (в обратном порядке, как стек) */
+    private char[] replay = new char[32];
+    private int replayTop;
+
+    WordTokenizer(Sink sink) {
+        this(sink, Locale.getDefault());
+    }
+
+    WordTokenizer(Sink sink, Locale locale) {
+        this.sink = sink;
+        this.locale = locale;
+        String language = locale.getLanguage();
+        // в этих языках String.toLowerCase() особо обрабатывает латинскую I
+        this.fastLowerCase = !language.equals("tr") && !language.equals("az") && !language.equals("lt");
+    }
+
+    /**
+     * @return разборщик в том же состоянии (с тем же незавершенным словом или тегом),
+     *   который передает слова в <code>sink</code>; например, чтобы узнать результат для текущего текста
+     *   вызовом {@link #finish()} у копии, не мешая дальнейшему разбору
+     */
+    WordTokenizer copy(Sink sink) {
+        WordTokenizer copy = new WordTokenizer(sink, locale);
+        copy.word = word.clone();
+        copy.wordLength = wordLength;
+        copy.wordFast = wordFast;
+        copy.state = state;
+        copy.tag = tag.clone();
+        copy.tagLength = tagLength;
+        copy.tagLastGt = tagLastGt;
+        return copy;
+    }
+
+    static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    static boolean isPunctuation(char c) {
+        switch (c) {
+            case ',': case '.': case '?': case ':': case ';': case '!': case '"': case '(': case ')': case '—':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Ищет в <code>text</code> начиная с позиции <code>from</code> границу, по которой текст можно разрезать
+     *  и разобрать части независимо с тем же результатом: пробельный символ, который не может оказаться внутри тега.<br/>
+     * Тег - это '&lt;', пробелы, одна непрерывная последовательность непробельных символов, пробелы и '&gt;',
+     *  поэтому достаточно, чтобы предыдущее слово не содержало '&lt;', а следующий после пробелов символ не был '&gt;'.
+     * @return позиция границы в диапазоне [from, to) или -1, если подходящей границы нет
+     */
+    static int findSplit(CharSequence text, int from, int to) {
+        int length = text.length();
+        int i = from;
+        while (i < to) {
+            while (i < to && !isWhitespace(text.charAt(i))) i++;
+            if (i >= to) break;
+            int next = i;
+            while (next < length && isWhitespace(text.charAt(next))) next++;
+            if ((next == length || text.charAt(next) != '>') && !tagBefore(text, i)) {
+                return i;
+            }
+            i = next;
+        }
+        return -1;
+    }
+
+    private static boolean tagBefore(CharSequence text, int end) {
+        int i = end - 1;
+        while (i >= 0 && isWhitespace(text.charAt(i))) i--;
+        for (; i >= 0; i--) {
+            char c = text.charAt(i);
+            if (c == '<') return true;
+            if (isWhitespace(c)) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Разбирает очередную часть текста.
+     */
+    void feed(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            accept(text.charAt(i));
+        }
+    }
+
+    /**
+     * Разбирает очередную часть текста из буфера.
+     */
+    void feed(char[] buffer, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            accept(buffer[i]);
+        }
+    }
+
+    /**
+     * Сообщает о конце текста: незакрытый тег считается обычным текстом, последнее слово завершается.
+     *  После этого разборщик готов к разбору следующего, независимого текста.
+     */
+    void finish() {
+        while (state != PLAIN) {
+            resolveTag();
+            drainReplay();
+        }
+        endWord();
+    }
+
+    private void accept(char c) {
+        step(c);
+        drainReplay();
+    }
+
+    private void drainReplay() {
+        while (replayTop > 0) {
+            step(replay[--replayTop]);
+        }
+    }
+
+    private void step(char c) {
+        if (state != PLAIN) {
+            tagChar(c);
+        } else if (c == '<') {
+            state = TAG_OPEN;
+            tagLength = 0;
+            tagLastGt = -1;
+        } else if (isWhitespace(c)) {
+            endWord();
+        } else if (!isPunctuation(c)) {
+            appendWord(c);
+        }
+    }
+
+    private void tagChar(char c) {
+        if (tagLength == tag.length) {
+            tag = Arrays.copyOf(tag, tagLength * 2);
+        }
+        tag[tagLength++] = c;
+        boolean whitespace = isWhitespace(c);
+        if (state == TAG_OPEN) {
+            if (!whitespace) {
+                state = TAG_BODY;
+                if (c == '>') tagLastGt = tagLength - 1;
+            }
+        } else if (state == TAG_BODY) {
+            if (whitespace) state = TAG_CLOSE;
+            else if (c == '>') tagLastGt = tagLength - 1;
+        } else if (c == '>') {
+            // "<" + пробелы + непробельные символы + пробелы + ">" - тег целиком
+            state = PLAIN;
+            tagLength = 0;
+        } else if (!whitespace) {
+            resolveTag();
+        }
+    }
+
+    /**
+     * Тег не закрылся после пробельных символов: как и жадное \S* в регулярном выражении,
+     *  откатываемся к последнему '&gt;' внутри непробельной части, а если его нет -
+     *  '&lt;' считается обычным символом. Оставшиеся символы разбираются заново.
+     */
+    private void resolveTag() {
+        state = PLAIN;
+        if (tagLastGt >= 0) {
+            pushReplay(tagLastGt + 1, tagLength);
+        } else {
+            appendWord('<');
+            pushReplay(0, tagLength);
+        }
+        tagLength = 0;
+    }
+
+    private void pushReplay(int from, int to) {
+        int count = to - from;
+        if (replayTop + count > replay.length) {
+            replay = Arrays.copyOf(replay, Math.max(replay.length * 2, replayTop + count));
+        }
+        for (int i = to - 1; i >= from; i--) {
+            replay[replayTop++] = tag[i];
+        }
+    }
+
+    private void appendWord(char c) {
+        if (wordLength == word.length) {
+            word = Arrays.copyOf(word, wordLength * 2);
+        }
+        word[wordLength++] = c;
+        if (c >= 0x80 && (c < 0x400 || c >= 0x500)) {
+            wordFast = false;
+        }
+    }
+
+    private void endWord() {
+        if (wordLength == 0) return;
+        int hash = 0;
+        if (wordFast && fastLowerCase) {
+            for (int i = 0; i < wordLength; i++) {
+                char c = word[i];
+                if (c < 0x80) {
+                    if (c >= 'A' && c <= 'Z') c += 'a' - 'A';
+                } else {
+                    c = Character.toLowerCase(c);
+                }
+                word[i] = c;
+                hash = 31 * hash + c;
+            }
+        } else {
+            // редкий случай: полные правила String.toLowerCase (сигма в конце слова, İ и т.п.)
+            String lower = new String(word, 0, wordLength).toLowerCase(locale);
+            wordLength = lower.length();
+            if (wordLength > word.length) {
+                word = new char[wordLength * 2];
+            }
+            lower.getChars(0, wordLength, word, 0);
+            hash = lower.hashCode();
+        }
+        sink.word(word, wordLength, hash);
+        wordLength = 0;
+        wordFast = true;
+    }
+}
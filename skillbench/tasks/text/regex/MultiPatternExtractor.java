@@ -0,0 +1,335 @@
+package ru.skillbench.tasks.text.regex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Поиск соответствий нескольким шаблонам за один проход по тексту.<br/>
+ * Для каждого шаблона можно задать обязательные подстроки (literals): каждое соответствие шаблону содержит
+ *  хотя бы одну из них, причем ее начало отстоит от начала соответствия не больше чем на <code>maxPrefix</code>
+ *  символов. Подстроки всех шаблонов ищутся в тексте одним автоматом Ахо-Корасик (без учета регистра,
+ *  что только добавляет кандидатов), и шаблон проверяется {@link Matcher#lookingAt()} лишь в немногих позициях
+ *  перед найденной подстрокой. Шаблон без обязательных подстрок ищется обычным {@link Matcher#find()}.<br/>
+ * Соответствия каждого шаблона - ровно те же, что нашел бы {@link Patterns#findAll(String, Pattern)}
+ *  (последовательные непересекающиеся соответствия {@link Matcher#find()}); соответствия разных шаблонов
+ *  могут пересекаться.<br/>
+ * Шаблоны добавляются до поиска и не потокобезопасно; {@link #extract(CharSequence)} можно вызывать
+ *  из нескольких потоков одновременно.
+ */
+public class MultiPatternExtractor {
+    private static final int ASCII = 128;
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    /** Автомат: переходы по символам ASCII (ячейка state * ASCII + c), готовые с учетом ссылок неудач */
+    private int[] asciiNext = new int[ASCII];
+    /** Переходы по остальным символам: (state << 16 | c) -> state, только ребра бора */
+    private final Map<Long, Integer> otherNext = new HashMap<>();
+    private int[] fail = new int[1];
+    /** Найденные подстроки в каждом состоянии: пары (номер шаблона, длина подстроки) */
+    private int[][] outputs = new int[1][];
+
+    /**
+     * Тип соответствия, его границы в тексте и найденный текст.
+     */
+    public static final class Match {
+        private final String type;
+        private final int start;
+        private final int end;
+        private final String text;
+
+        Match(String type, int start, int end, String text) {
+            this.type = type;
+            this.start = start;
+            this.end = end;
+            this.text = text;
+        }
+
+        /**
+         * @return тип, заданный при добавлении шаблона
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return индекс первого символа соответствия
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return индекс символа после соответствия
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + start + ", " + end + "): " + text;
+        }
+    }
+
+    private static final class Rule {
+        final String type;
+        final Pattern pattern;
+        final String[] literals;
+        /** Насколько раньше конца найденной подстроки может начинаться соответствие */
+        final int window;
+
+        Rule(String type, Pattern pattern, int maxPrefix, String[] literals) {
+            this.type = type;
+            this.pattern = pattern;
+            this.literals = literals;
+            int maxLength = 0;
+            for (String literal : literals) {
+                maxLength = Math.max(maxLength, literal.length());
+            }
+            this.window = maxPrefix + maxLength - 1;
+        }
+    }
+
+    /**
+     * Извлекает из текста тех же, что и {@link Patterns}, кандидатов одним проходом: "email" - обычным поиском
+     *  (шаблон {@link Patterns#getEmailPattern()} описывает только аккаунт и не содержит обязательных символов),
+     *  "href" - по символу '&lt;', "phone" ({@link CurriculumVitae#PHONE_PATTERN}) - по первой цифре номера.
+     */
+    public static MultiPatternExtractor of(Patterns patterns) {
+        MultiPatternExtractor extractor = new MultiPatternExtractor();
+        extractor.addPattern("email", patterns.getEmailPattern());
+        extractor.addPattern("href", patterns.getHrefTagPattern(), 0, "<");
+        // номер начинается с цифры 1-9 или с "(" перед ней
+        extractor.addPattern("phone", Pattern.compile(CurriculumVitae.PHONE_PATTERN), 1,
+                "1", "2", "3", "4", "5", "6", "7", "8", "9");
+        return extractor;
+    }
+
+    /**
+     * Добавляет шаблон без обязательных подстрок: он ищется отдельным проходом {@link Matcher#find()}.
+     * @param type тип соответствий шаблону в результате
+     */
+    public void addPattern(String type, Pattern pattern) {
+        rules.add(new Rule(Objects.requireNonNull(type), Objects.requireNonNull(pattern), 0, new String[0]));
+    }
+
+    /**
+     * Добавляет шаблон, каждое соответствие которому содержит хотя бы одну из подстрок <code>literals</code>,
+     *  начинающуюся не дальше <code>maxPrefix</code> символов от начала соответствия (0 - соответствие
+     *  начинается с подстроки). Если это условие нарушено, часть соответствий не будет найдена.
+     * @param type тип соответствий шаблону в результате
+     * @throws IllegalArgumentException если подстрок нет, среди них есть пустая или <code>maxPrefix</code> отрицательно
+     */
+    public void addPattern(String type, Pattern pattern, int maxPrefix, String... literals) {
+        if (literals.length == 0) throw new IllegalArgumentException("No literals");
+        if (maxPrefix < 0) throw new IllegalArgumentException("maxPrefix < 0: " + maxPrefix);
+        for (String literal : literals) {
+            if (literal.isEmpty()) throw new IllegalArgumentException("Empty literal");
+        }
+        rules.add(new Rule(Objects.requireNonNull(type), Objects.requireNonNull(pattern), maxPrefix, literals.clone()));
+        build();
+    }
+
+    /**
+     * Строит автомат Ахо-Корасик по подстрокам всех шаблонов.
+     */
+    private void build() {
+        // бор: по символам ASCII - плотная таблица, по остальным - otherNext
+        List<int[]> trieOutputs = new ArrayList<>();
+        trieOutputs.add(new int[0]);
+        int[] ascii = new int[ASCII];
+        Arrays.fill(ascii, -1);
+        otherNext.clear();
+        int states = 1;
+        for (int r = 0; r < rules.size(); r++) {
+            for (String literal : rules.get(r).literals) {
+                int state = 0;
+                for (int i = 0; i < literal.length(); i++) {
+                    char c = fold(literal.charAt(i));
+                    int target = step(ascii, state, c);
+                    if (target < 0) {
+                        target = states++;
+                        if (states * ASCII > ascii.length) {
+                            ascii = Arrays.copyOf(ascii, ascii.length * 2);
+                            Arrays.fill(ascii, ascii.length / 2, ascii.length, -1);
+                        }
+                        trieOutputs.add(new int[0]);
+                        if (c < ASCII) ascii[state * ASCII + c] = target;
+                        else otherNext.put((long) state << 16 | c, target);
+                    }
+                    state = target;
+                }
+                int[] output = trieOutputs.get(state);
+                output = Arrays.copyOf(output, output.length + 2);
+                output[output.length - 2] = r;
+                output[output.length - 1] = literal.length();
+                trieOutputs.set(state, output);
+            }
+        }
+
+        // ссылки неудач в порядке обхода в ширину; переходы по ASCII дополняются до полного автомата
+        int[] failLinks = new int[states];
+        int[][] stateOutputs = trieOutputs.toArray(new int[states][]);
+        List<List<Character>> otherChildren = new ArrayList<>();
+        for (int s = 0; s < states; s++) {
+            otherChildren.add(new ArrayList<>());
+        }
+        for (Long key : otherNext.keySet()) {
+            otherChildren.get((int) (key >>> 16)).add((char) (key & 0xFFFF));
+        }
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ASCII; c++) {
+            int target = ascii[c];
+            if (target < 0) {
+                ascii[c] = 0;
+            } else {
+                failLinks[target] = 0;
+                queue.add(target);
+            }
+        }
+        for (char c : otherChildren.get(0)) {
+            int target = otherNext.get((long) c);
+            failLinks[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int[] inherited = stateOutputs[failLinks[state]];
+            if (inherited.length > 0) {
+                int[] own = stateOutputs[state];
+                int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+                System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+                stateOutputs[state] = merged;
+            }
+            for (int c = 0; c < ASCII; c++) {
+                int target = ascii[state * ASCII + c];
+                int fallback = ascii[failLinks[state] * ASCII + c];
+                if (target < 0) {
+                    ascii[state * ASCII + c] = fallback;
+                } else {
+                    failLinks[target] = fallback;
+                    queue.add(target);
+                }
+            }
+            for (char c : otherChildren.get(state)) {
+                int target = otherNext.get((long) state << 16 | c);
+                failLinks[target] = nextOther(failLinks, failLinks[state], c);
+                queue.add(target);
+            }
+        }
+        asciiNext = ascii;
+        fail = failLinks;
+        outputs = stateOutputs;
+    }
+
+    /**
+     * Переход по ребру бора или -1 (только при построении).
+     */
+    private int step(int[] ascii, int state, char c) {
+        if (c < ASCII) return ascii[state * ASCII + c];
+        Integer target = otherNext.get((long) state << 16 | c);
+        return target == null ? -1 : target;
+    }
+
+    /**
+     * Переход автомата по символу вне ASCII (через ссылки неудач).
+     */
+    private int nextOther(int[] failLinks, int state, char c) {
+        while (true) {
+            Integer target = otherNext.get((long) state << 16 | c);
+            if (target != null) return target;
+            if (state == 0) return 0;
+            state = failLinks[state];
+        }
+    }
+
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Находит соответствия всем шаблонам в тексте <code>input</code>.
+     * @return соответствия по возрастанию начала, при равном начале - в порядке добавления шаблонов
+     */
+    public List<Match> extract(CharSequence input) {
+        int ruleCount = rules.size();
+        Matcher[] matchers = new Matcher[ruleCount];
+        List<List<Match>> found = new ArrayList<>(ruleCount);
+        for (int r = 0; r < ruleCount; r++) {
+            Rule rule = rules.get(r);
+            matchers[r] = rule.pattern.matcher(input).useTransparentBounds(true).useAnchoringBounds(false);
+            List<Match> matches = new ArrayList<>();
+            found.add(matches);
+            if (rule.literals.length == 0) {
+                Matcher matcher = matchers[r];
+                while (matcher.find()) {
+                    matches.add(new Match(rule.type, matcher.start(), matcher.end(), matcher.group()));
+                }
+            }
+        }
+
+        // nextFrom[r] - позиция, с которой продолжился бы find(): до нее соответствия уже найдены
+        int[] nextFrom = new int[ruleCount];
+        int[] ascii = asciiNext;
+        int length = input.length();
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            char c = fold(input.charAt(i));
+            state = c < ASCII ? ascii[state * ASCII + c] : nextOther(fail, state, c);
+            int[] output = outputs[state];
+            for (int k = 0; k < output.length; k += 2) {
+                int r = output[k];
+                confirm(rules.get(r), matchers[r], found.get(r), nextFrom, r, i, i - output[k + 1] + 1);
+            }
+        }
+        return merge(found);
+    }
+
+    /**
+     * Проверяет начала соответствий перед подстрокой [literalStart, literalEnd] шаблона r.<br/>
+     * Соответствие, начинающееся раньше literalEnd - window, содержит подстроку, которая кончается раньше
+     *  literalEnd, и уже проверено при ее обработке; поэтому достаточно начал от literalEnd - window
+     *  до literalStart, а после проверки find() продолжился бы не раньше literalStart + 1.
+     */
+    private static void confirm(Rule rule, Matcher matcher, List<Match> matches, int[] nextFrom, int r,
+                                int literalEnd, int literalStart) {
+        int start = Math.max(nextFrom[r], literalEnd - rule.window);
+        while (start <= literalStart) {
+            matcher.region(start, matcher.regionEnd());
+            if (matcher.lookingAt()) {
+                int end = matcher.end();
+                matches.add(new Match(rule.type, start, end, matcher.group()));
+                start = end > start ? end : start + 1;
+            } else {
+                start++;
+            }
+        }
+        nextFrom[r] = Math.max(nextFrom[r], start);
+    }
+
+    private List<Match> merge(List<List<Match>> found) {
+        int total = 0;
+        for (List<Match> matches : found) {
+            total += matches.size();
+        }
+        List<Match> result = new ArrayList<>(total);
+        for (List<Match> matches : found) {
+            result.addAll(matches);
+        }
+        // сортировка устойчива: при равном начале сохраняется порядок шаблонов
+        result.sort((a, b) -> Integer.compare(a.start, b.start));
+        return result;
+    }
+}
@@ -0,0 +1,135 @@
+package ru.skillbench.tasks.text.regex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Ограниченный по размеру кеш скомпилированных шаблонов {@link Pattern}: при переполнении вытесняется шаблон,
+ *  к которому дольше всего не обращались (LRU, {@link LinkedHashMap} в порядке доступа).<br/>
+ * Ведет счетчики попаданий, промахов и вытеснений. Шаблон компилируется вне блокировки, поэтому промахи
+ *  разных потоков не ждут друг друга; если один шаблон одновременно скомпилировали несколько потоков,
+ *  в кеше остается первый.<br/>
+ * Экземпляр потокобезопасен.
+ */
+public class PatternCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, Pattern> patterns;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity наибольшее число шаблонов в кеше
+     * @throws IllegalArgumentException если <code>capacity</code> меньше 1
+     */
+    public PatternCache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity < 1: " + capacity);
+        this.capacity = capacity;
+        this.patterns = new LinkedHashMap<Key, Pattern>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Pattern> eldest) {
+                if (size() <= PatternCache.this.capacity) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * То же, что <code>get(regex, 0)</code>.
+     */
+    public Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    /**
+     * Возвращает шаблон из кеша или компилирует его и добавляет в кеш.
+     * @param regex регулярное выражение
+     * @param flags флаги {@link Pattern#compile(String, int)}
+     * @throws java.util.regex.PatternSyntaxException если выражение неверно (в кеш ничего не добавляется)
+     */
+    public Pattern get(String regex, int flags) {
+        Key key = new Key(regex, flags);
+        synchronized (this) {
+            Pattern pattern = patterns.get(key);
+            if (pattern != null) {
+                hits++;
+                return pattern;
+            }
+            misses++;
+        }
+        Pattern pattern = Pattern.compile(regex, flags);
+        synchronized (this) {
+            Pattern existing = patterns.putIfAbsent(key, pattern);
+            return existing != null ? existing : pattern;
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return число шаблонов в кеше
+     */
+    public synchronized int size() {
+        return patterns.size();
+    }
+
+    /**
+     * @return число вызовов {@link #get(String, int)}, нашедших шаблон в кеше
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return число вызовов {@link #get(String, int)}, компилировавших шаблон
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return число шаблонов, вытесненных из кеша
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Удаляет все шаблоны из кеша (счетчики не сбрасываются).
+     */
+    public synchronized void clear() {
+        patterns.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PatternCache[size=" + patterns.size() + ", capacity=" + capacity
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+
+    private static final class Key {
+        final String regex;
+        final int flags;
+
+        Key(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return flags == key.flags && regex.equals(key.regex);
+        }
+
+        @Override
+        public int hashCode() {
+            return regex.hashCode() * 31 + flags;
+        }
+    }
+}
@@ -1,14 +1,50 @@
 package ru.skillbench.tasks.text.regex;
 
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 public class PatternsImpl implements Patterns {
+    private static final Pattern SQL_IDENTIFIER = Pattern.compile("^[a-zA-Z]\\w{0,29}");
+    private static final Pattern EMAIL = Pattern.compile("(?i)[a-z\\d][\\w.\\-]{0,20}[a-z\\d]");
+    private static final Pattern HREF_TAG = Pattern.compile("<(?i)(\\s*a\\s*href)(?-i)\\s*=\\s*(\".*?\"|\\S+?)\\s*/?>");
+    /**
+     * Кеш шаблонов {@link #countMatches(String, String)}, общий для экземпляров, созданных конструктором без параметров
+     */
+    private static final PatternCache SHARED_CACHE = new PatternCache(256);
+
+    private final PatternCache cache;
+
+    public PatternsImpl() {
+        this(SHARED_CACHE);
+    }
+
+    /**
+     * @param cache кеш шаблонов для {@link #countMatches(String, String)}
+     */
+    public PatternsImpl(PatternCache cache) {
+        this.cache = Objects.requireNonNull(cache);
+    }
+
+    /**
+     * @return кеш шаблонов {@link #countMatches(String, String)} (например, для чтения счетчиков попаданий)
+     */
+    public PatternCache getPatternCache() {
+        return cache;
+    }
+
+    /**
+     * Шаблон неизменяем и компилируется один раз; все вызовы возвращают один и тот же объект.
+     */
     @Override
     public Pattern getSQLIdentifierPattern() {
-        return Pattern.compile("^[a-zA-Z]\\w{0,29}");
+        return SQL_IDENTIFIER;
     }
     /**
      * Email имеет формат: "аккаунт"@"домен"."домен_первого_уровня"<br/>
@@ -31,7 +67,7 @@ public class PatternsImpl implements Patterns {
 //     *  латинские буквы, цифры, знак подчеркивания ("_"), точка ("."), дефис ("-").<br/>
 //     * Аккаунт не может начинаться с символов дефис ("-"), точка (".") или знак подчеркивания ("_").<br/>
 //     * Аккаунт не может заканчиваться символом дефис ("-"), точка (".") или знак подчеркивания ("_").
-        return Pattern.compile("(?i)[a-z\\d][\\w.\\-]{0,20}[a-z\\d]");
+        return EMAIL;
 //        return Pattern.compile("(?i)[a-z\\d][\\w.\\-]{0,20}[a-z\\d]" +
 //                "@([a-z\\d][a-z\\d\\-]*[a-z\\d]\\.)+(?-i)"+
 //                "(ru|com|net|org)");
@@ -55,7 +91,7 @@ public class PatternsImpl implements Patterns {
      * */
     @Override
     public Pattern getHrefTagPattern() {
-        return Pattern.compile("<(?i)(\\s*a\\s*href)(?-i)\\s*=\\s*(\".*?\"|\\S+?)\\s*/?>");
+        return HREF_TAG;
     }
 
     @Override
@@ -68,9 +104,31 @@ public class PatternsImpl implements Patterns {
         return matchingList;
     }
 
+    /**
+     * Ленивый вариант {@link #findAll(String, Pattern)} для большого текста: источник читается окнами
+     *  по мере потребления потока (см. {@link StreamingMatcher}), поэтому, например, <code>limit(10)</code>
+     *  не читает его до конца. Закрытие потока закрывает <code>input</code>.
+     * @param maxMatchLength наибольшая длина соответствия: более длинные соответствия могут быть обрезаны
+     *   на границе окна
+     */
+    public Stream<String> findAll(Reader input, Pattern pattern, int maxMatchLength) {
+        return new StreamingMatcher(input, pattern, maxMatchLength).stream();
+    }
+
+    /**
+     * То же, что {@link #findAll(Reader, Pattern, int)}, для канала байтов текста в кодировке <code>charset</code>.
+     */
+    public Stream<String> findAll(ReadableByteChannel input, Charset charset, Pattern pattern, int maxMatchLength) {
+        return new StreamingMatcher(input, charset, pattern, maxMatchLength).stream();
+    }
+
+    /**
+     * Шаблон берется из {@link #getPatternCache()}: <code>regex</code> с флагом {@link Pattern#CASE_INSENSITIVE}
+     *  (что равносильно префиксу "(?i)") компилируется только при промахе кеша.
+     */
     @Override
     public int countMatches(String input, String regex) {
-        Pattern pattern = Pattern.compile("(?i)".concat(regex));
+        Pattern pattern = cache.get(regex, Pattern.CASE_INSENSITIVE);
         Matcher matcher = pattern.matcher(input);
         int count = 0;
         while(matcher.find()) {
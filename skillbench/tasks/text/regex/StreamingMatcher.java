@@ -0,0 +1,197 @@
+package ru.skillbench.tasks.text.regex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ленивый аналог {@link Patterns#findAll(String, Pattern)} для источника, который не помещается в память:
+ *  соответствия ищутся в окне текста, которое сдвигается по мере чтения источника, и выдаются по одному.<br/>
+ * Если поиск в окне дошел до его конца ({@link Matcher#hitEnd()}), то источник читается дальше, а в окне
+ *  остаются только последние <code>maxMatchLength</code> символов, в которых еще может начаться соответствие,
+ *  и столько же символов перед ними для просмотра назад. Поэтому соответствия длиной не больше
+ *  <code>maxMatchLength</code> (вместе с просмотром вперед и назад) находятся так же, как в тексте целиком,
+ *  даже если пересекают границу прочитанной части. Более длинное соответствие может быть обрезано
+ *  на границе окна. Окно занимает не больше <code>4 * maxMatchLength</code> символов (и не меньше 64K).<br/>
+ * Источник читается только по мере запроса соответствий, поэтому, например, <code>stream().limit(10)</code>
+ *  не читает остаток источника.<br/>
+ * Экземпляр не потокобезопасен.
+ */
+public class StreamingMatcher implements Iterator<String>, Closeable {
+    /**
+     * Наибольшая длина соответствия по умолчанию
+     */
+    public static final int DEFAULT_MAX_MATCH_LENGTH = 1 << 12;
+    private static final int MIN_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_MATCH_LENGTH = 1 << 28;
+
+    private final Reader reader;
+    private final Matcher matcher;
+    private final int maxMatchLength;
+    private final char[] buffer;
+    /** Число символов в буфере */
+    private int length;
+    /** Смещение buffer[0] от начала источника */
+    private long base;
+    /** Позиция в буфере, с которой продолжается поиск */
+    private int position;
+    private boolean eof;
+
+    private String next;
+    private long nextStart;
+    private long nextEnd;
+    private long start = -1;
+    private long end = -1;
+
+    /**
+     * @param reader источник текста; закрывается методом {@link #close()}
+     * @param pattern шаблон поиска
+     * @param maxMatchLength наибольшая длина соответствия (см. описание класса)
+     * @throws IllegalArgumentException если <code>maxMatchLength</code> меньше 1 или больше 2<sup>28</sup>
+     */
+    public StreamingMatcher(Reader reader, Pattern pattern, int maxMatchLength) {
+        if (maxMatchLength < 1 || maxMatchLength > MAX_MATCH_LENGTH) {
+            throw new IllegalArgumentException("maxMatchLength: " + maxMatchLength);
+        }
+        this.reader = Objects.requireNonNull(reader);
+        this.matcher = pattern.matcher("").useTransparentBounds(true).useAnchoringBounds(false);
+        this.maxMatchLength = maxMatchLength;
+        this.buffer = new char[Math.max(MIN_BUFFER_SIZE, maxMatchLength * 4)];
+    }
+
+    /**
+     * Читает текст из канала байтов в кодировке <code>charset</code>
+     *  (неверные последовательности байтов заменяются символом U+FFFD).
+     */
+    public StreamingMatcher(ReadableByteChannel channel, Charset charset, Pattern pattern, int maxMatchLength) {
+        this(Channels.newReader(channel, charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1), pattern, maxMatchLength);
+    }
+
+    /**
+     * @throws UncheckedIOException при ошибке чтения
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                find();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    /**
+     * @return очередное соответствие
+     * @throws NoSuchElementException если соответствий больше нет
+     * @throws UncheckedIOException при ошибке чтения
+     */
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        String match = next;
+        next = null;
+        start = nextStart;
+        end = nextEnd;
+        return match;
+    }
+
+    /**
+     * @return смещение начала последнего выданного соответствия от начала источника (в символах)
+     *   или -1, если соответствий еще не было
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return смещение символа после последнего выданного соответствия от начала источника
+     *   или -1, если соответствий еще не было
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * Возвращает оставшиеся соответствия в виде ленивого потока; закрытие потока закрывает источник.
+     */
+    public Stream<String> stream() {
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        length = 0;
+        position = 0;
+        reader.close();
+    }
+
+    private void find() throws IOException {
+        while (true) {
+            if (position > length || position == length && !eof) {
+                if (eof) return;
+                readMore(position);
+                continue;
+            }
+            matcher.reset(CharBuffer.wrap(buffer, 0, length));
+            matcher.region(position, length);
+            boolean found = matcher.find();
+            int tail = length - maxMatchLength;
+            if (found && (eof || !matcher.hitEnd() || matcher.start() < tail)) {
+                // соответствие не изменится при чтении дальше (или длиннее maxMatchLength)
+                next = matcher.group();
+                nextStart = base + matcher.start();
+                nextEnd = base + matcher.end();
+                position = matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+                return;
+            }
+            if (eof) return;
+            // соответствие, которое может появиться после чтения, начинается не раньше tail
+            readMore(Math.max(position, tail));
+        }
+    }
+
+    /**
+     * Отбрасывает символы буфера, которые уже не нужны для поиска с позиции <code>from</code>
+     *  (кроме maxMatchLength символов перед ней), и дочитывает источник.
+     */
+    private void readMore(int from) throws IOException {
+        int discard = Math.max(0, Math.min(from, length) - maxMatchLength);
+        if (discard > 0) {
+            System.arraycopy(buffer, discard, buffer, 0, length - discard);
+            length -= discard;
+            base += discard;
+        }
+        position = from - discard;
+        int n = reader.read(buffer, length, buffer.length - length);
+        if (n < 0) eof = true;
+        else length += n;
+    }
+}